@@ -7,7 +7,10 @@ package frc.trigon.robot;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.trigon.robot.constants.OperatorConstants;
 import frc.trigon.robot.constants.RobotConstants;
+import frc.trigon.robot.utilities.DriveLatencyTracker;
+import frc.trigon.robot.utilities.LoopTimer;
 import org.littletonrobotics.junction.LogFileUtil;
 import org.littletonrobotics.junction.LoggedRobot;
 import org.littletonrobotics.junction.Logger;
@@ -29,7 +32,10 @@ public class Robot extends LoggedRobot {
 
     @Override
     public void robotPeriodic() {
+        LoopTimer.update();
+        OperatorConstants.DRIVER_INPUTS.update();
         commandScheduler.run();
+        DriveLatencyTracker.update();
     }
 
     @Override
@@ -0,0 +1,137 @@
+package frc.trigon.robot.components;
+
+import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.math.util.Units;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * A snapshot of the driver's inputs, that's sampled from the controller once every loop.
+ * Every axis is read from the HID once, and shaped with the controller's deadband and exponent lookup table.
+ * The shift mode is then applied, which slows the robot down relative to how much the right trigger is pressed, and the powers can optionally be slew rate limited.
+ * All the drive commands read the same snapshot, so the inputs are consistent across axes within a loop.
+ */
+public class DriverInputs {
+    private final XboxController controller;
+    private final double translationShiftCoefficient, rotationShiftCoefficient;
+    private final SlewRateLimiter xPowerLimiter, yPowerLimiter, rotationPowerLimiter;
+    private double xPower = 0, yPower = 0, rotationPower = 0;
+    private double povXPower = 0, povYPower = 0, shiftModeTranslationScale = 1;
+    private boolean isPovPressed = false;
+    private long sampleTimestampMicroseconds = 0;
+
+    /**
+     * Constructs a new DriverInputs without slew rate limiting.
+     *
+     * @param controller                   the driver's controller
+     * @param minimumTranslationShiftPower the minimum amount of translation power the shift mode can limit (as an absolute number)
+     * @param minimumRotationShiftPower    the minimum amount of rotation power the shift mode can limit (as an absolute number)
+     */
+    public DriverInputs(XboxController controller, double minimumTranslationShiftPower, double minimumRotationShiftPower) {
+        this(controller, minimumTranslationShiftPower, minimumRotationShiftPower, 0, 0);
+    }
+
+    /**
+     * Constructs a new DriverInputs.
+     *
+     * @param controller                   the driver's controller
+     * @param minimumTranslationShiftPower the minimum amount of translation power the shift mode can limit (as an absolute number)
+     * @param minimumRotationShiftPower    the minimum amount of rotation power the shift mode can limit (as an absolute number)
+     * @param translationSlewRate          the maximum rate of change of the translation powers, in units per second, or 0 to disable the limit
+     * @param rotationSlewRate             the maximum rate of change of the rotation power, in units per second, or 0 to disable the limit
+     */
+    public DriverInputs(XboxController controller, double minimumTranslationShiftPower, double minimumRotationShiftPower, double translationSlewRate, double rotationSlewRate) {
+        this.controller = controller;
+        translationShiftCoefficient = 1 - (1 / minimumTranslationShiftPower);
+        rotationShiftCoefficient = 1 - (1 / minimumRotationShiftPower);
+        xPowerLimiter = createSlewRateLimiter(translationSlewRate);
+        yPowerLimiter = createSlewRateLimiter(translationSlewRate);
+        rotationPowerLimiter = createSlewRateLimiter(rotationSlewRate);
+    }
+
+    /**
+     * Samples the controller and updates the snapshot. This should be called once every loop, before the commands run.
+     */
+    public void update() {
+        sampleTimestampMicroseconds = Logger.getTimestamp();
+        final double rightTriggerAxis = controller.getHID().getRightTriggerAxis();
+        final double squaredShiftModeValue = rightTriggerAxis * rightTriggerAxis;
+        shiftModeTranslationScale = 1 / (1 - squaredShiftModeValue * translationShiftCoefficient);
+        final double shiftModeRotationScale = 1 / (1 - squaredShiftModeValue * rotationShiftCoefficient);
+
+        xPower = limit(xPowerLimiter, controller.calculateValue(controller.getHID().getLeftY()) * shiftModeTranslationScale);
+        yPower = limit(yPowerLimiter, controller.calculateValue(controller.getHID().getLeftX()) * shiftModeTranslationScale);
+        rotationPower = limit(rotationPowerLimiter, controller.calculateValue(controller.getHID().getRightX()) * shiftModeRotationScale);
+        updatePov(controller.getHID().getPOV());
+    }
+
+    /**
+     * @return the timestamp of the loop the snapshot was sampled in, which is taken when the driver station data is refreshed, in microseconds
+     */
+    public long getSampleTimestampMicroseconds() {
+        return sampleTimestampMicroseconds;
+    }
+
+    /**
+     * @return the forwards power from the left stick, after the shift mode is applied
+     */
+    public double getXPower() {
+        return xPower;
+    }
+
+    /**
+     * @return the sideways power from the left stick, after the shift mode is applied
+     */
+    public double getYPower() {
+        return yPower;
+    }
+
+    /**
+     * @return the rotation power from the right stick, after the shift mode is applied
+     */
+    public double getRotationPower() {
+        return rotationPower;
+    }
+
+    /**
+     * @return the forwards power from the POV, after the shift mode is applied, or 0 if the POV isn't pressed
+     */
+    public double getPovXPower() {
+        return povXPower;
+    }
+
+    /**
+     * @return the sideways power from the POV, after the shift mode is applied, or 0 if the POV isn't pressed
+     */
+    public double getPovYPower() {
+        return povYPower;
+    }
+
+    public boolean isPovPressed() {
+        return isPovPressed;
+    }
+
+    private void updatePov(int pov) {
+        isPovPressed = pov != -1;
+        if (!isPovPressed) {
+            povXPower = 0;
+            povYPower = 0;
+            return;
+        }
+
+        final double povRadians = Units.degreesToRadians(pov);
+        povXPower = Math.cos(povRadians) * shiftModeTranslationScale;
+        povYPower = Math.sin(-povRadians) * shiftModeTranslationScale;
+    }
+
+    private double limit(SlewRateLimiter limiter, double power) {
+        if (limiter == null)
+            return power;
+        return limiter.calculate(power);
+    }
+
+    private SlewRateLimiter createSlewRateLimiter(double slewRate) {
+        if (slewRate <= 0)
+            return null;
+        return new SlewRateLimiter(slewRate);
+    }
+}
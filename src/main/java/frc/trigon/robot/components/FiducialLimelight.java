@@ -1,17 +1,24 @@
 package frc.trigon.robot.components;
 
+import com.google.gson.stream.JsonReader;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.*;
 import frc.trigon.robot.utilities.JsonHandler;
 import org.littletonrobotics.junction.networktables.LoggedDashboardNumber;
-import org.littletonrobotics.junction.networktables.LoggedDashboardString;
+
+import java.io.IOException;
+import java.util.Arrays;
 
 @SuppressWarnings("unused")
 public class FiducialLimelight {
     private final String hostname;
-    private final LoggedDashboardNumber tv, pipeline, ledMode, driverCam, snapshot;
-    private final LoggedDashboardString json;
+    private final LoggedDashboardNumber pipeline, ledMode, driverCam, snapshot;
+    private final DoubleSubscriber tv;
+    private final StringSubscriber json;
+    private final LimelightFrame cachedFrame = new LimelightFrame();
+    private String cachedJsonString = "";
 
     /**
      * Constructs a new Limelight.
@@ -21,8 +28,9 @@ public class FiducialLimelight {
     public FiducialLimelight(String hostname) {
         this.hostname = hostname;
 
-        tv = new LoggedDashboardNumber(hostname + "/tv");
-        json = new LoggedDashboardString(hostname + "/json");
+        final NetworkTable networkTable = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable(hostname);
+        tv = networkTable.getDoubleTopic("tv").subscribe(0);
+        json = networkTable.getStringTopic("json").subscribe("");
         pipeline = new LoggedDashboardNumber(hostname + "/pipeline");
         ledMode = new LoggedDashboardNumber(hostname + "/ledMode");
         driverCam = new LoggedDashboardNumber(hostname + "/camMode");
@@ -33,7 +41,14 @@ public class FiducialLimelight {
      * @return the last result's timestamp
      */
     public double getLastResultTimestamp() {
-        return getJsonDump().Results.ts;
+        return getFrame().timestamp;
+    }
+
+    /**
+     * @return the topic the Limelight publishes its json dump to, which gets a new value on every frame
+     */
+    public Topic getJsonTopic() {
+        return json.getTopic();
     }
 
     /**
@@ -50,9 +65,10 @@ public class FiducialLimelight {
      * @return the vertical offset from the crosshair to the target (-20.5 degrees to 20.5 degrees)
      */
     public double getTy(int id) {
-        final LimelightJsonDump.Results.Fiducial fiducial = getFiducialFromId(id);
+        final LimelightFrame frame = getFrame();
+        final int fiducialIndex = frame.getFiducialIndex(id);
 
-        return fiducial == null ? 0 : fiducial.ty;
+        return fiducialIndex == -1 ? 0 : frame.fiducialsTy[fiducialIndex];
     }
 
     /**
@@ -62,9 +78,10 @@ public class FiducialLimelight {
      * @return the horizontal offset from the crosshair to the target (-27 degrees to 27 degrees)
      */
     public double getTx(int id) {
-        final LimelightJsonDump.Results.Fiducial fiducial = getFiducialFromId(id);
+        final LimelightFrame frame = getFrame();
+        final int fiducialIndex = frame.getFiducialIndex(id);
 
-        return fiducial == null ? 0 : fiducial.tx;
+        return fiducialIndex == -1 ? 0 : frame.fiducialsTx[fiducialIndex];
     }
 
     /**
@@ -74,9 +91,10 @@ public class FiducialLimelight {
      * @return target's area (from 0% of the image to 100% of the image)
      */
     public double getTa(int id) {
-        final LimelightJsonDump.Results.Fiducial fiducial = getFiducialFromId(id);
+        final LimelightFrame frame = getFrame();
+        final int fiducialIndex = frame.getFiducialIndex(id);
 
-        return fiducial == null ? 0 : fiducial.ta;
+        return fiducialIndex == -1 ? 0 : frame.fiducialsTa[fiducialIndex];
     }
 
     /**
@@ -138,11 +156,11 @@ public class FiducialLimelight {
      * @return the robot's pose, as reported by the Limelight
      */
     public Pose3d getRobotPoseFromJsonDump() {
-        final double[] robotPoseArray = getJsonDump().Results.botpose_wpiblue;
-        if (robotPoseArray.length != 6)
+        final LimelightFrame frame = getFrame();
+        if (frame.robotPoseLength != frame.robotPose.length)
             return null;
 
-        return robotPoseArrayToPose3d(robotPoseArray);
+        return robotPoseArrayToPose3d(frame.robotPose);
     }
 
     /**
@@ -153,17 +171,23 @@ public class FiducialLimelight {
     }
 
     /**
-     * @return the json dump of the Limelight
+     * Returns the decoded json dump of the Limelight.
+     * The dump is only decoded when the Limelight publishes a new frame, and every other call returns the cached frame.
+     *
+     * @return the decoded frame
      */
-    public LimelightJsonDump getJsonDump() {
+    private LimelightFrame getFrame() {
         final String jsonString = json.get();
-        if (jsonString.isEmpty())
-            return new LimelightJsonDump();
+        if (isCachedJsonString(jsonString))
+            return cachedFrame;
 
-        return JsonHandler.parseJsonStringToObject(
-                jsonString,
-                LimelightJsonDump.class
-        );
+        cachedJsonString = jsonString;
+        cachedFrame.decode(jsonString);
+        return cachedFrame;
+    }
+
+    private boolean isCachedJsonString(String jsonString) {
+        return jsonString == cachedJsonString || jsonString.equals(cachedJsonString);
     }
 
     private Pose3d robotPoseArrayToPose3d(double[] robotPoseArray) {
@@ -181,14 +205,6 @@ public class FiducialLimelight {
         return new Pose3d(robotTranslation, robotRotation);
     }
 
-    private LimelightJsonDump.Results.Fiducial getFiducialFromId(int id) {
-        final LimelightJsonDump.Results results = getJsonDump().Results;
-        if (results.Fiducial == null)
-            return null;
-
-        return results.getFiducialFromId(id);
-    }
-
     public enum LedMode {
         USE_LED_MODE(0),
         FORCE_OFF(1),
@@ -212,33 +228,106 @@ public class FiducialLimelight {
         }
     }
 
-    private static class LimelightJsonDump {
-        private Results Results = new Results();
+    /**
+     * The fields of the Limelight's json dump that are used, decoded with a streaming reader into preallocated primitive holders.
+     * Every other field of the dump is skipped without being parsed into objects.
+     */
+    private static class LimelightFrame {
+        private static final int INITIAL_FIDUCIALS_CAPACITY = 16;
+        private final double[] robotPose = new double[6];
+        private int robotPoseLength = 0;
+        private double timestamp = 0;
+        private int fiducialsCount = 0;
+        private int[] fiducialsId = new int[INITIAL_FIDUCIALS_CAPACITY];
+        private double[]
+                fiducialsTx = new double[INITIAL_FIDUCIALS_CAPACITY],
+                fiducialsTy = new double[INITIAL_FIDUCIALS_CAPACITY],
+                fiducialsTa = new double[INITIAL_FIDUCIALS_CAPACITY];
+
+        private int getFiducialIndex(int id) {
+            for (int i = 0; i < fiducialsCount; i++) {
+                if (fiducialsId[i] == id)
+                    return i;
+            }
+            return -1;
+        }
 
-        private static class Results {
-            private double[] Classifier;
-            private double[] Detector;
-            private Fiducial[] Fiducial;
-            private double[] retro;
-            private double[] botpose, botpose_wpiblue, botpose_wpired;
-            private double pID, tl, ts, v;
+        /**
+         * Decodes a json dump into this frame. If the json is empty or malformed, the frame is cleared.
+         *
+         * @param jsonString the json dump
+         */
+        private void decode(String jsonString) {
+            clear();
+            if (jsonString.isEmpty())
+                return;
+
+            try (JsonReader reader = JsonHandler.createStreamingReader(jsonString)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("Results"))
+                        decodeResults(reader);
+                    else
+                        reader.skipValue();
+                }
+                reader.endObject();
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                clear();
+            }
+        }
 
-            private Fiducial getFiducialFromId(int id) {
-                for (Fiducial fiducial : Fiducial) {
-                    if (fiducial.fID == id)
-                        return fiducial;
+        private void decodeResults(JsonReader reader) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "botpose_wpiblue" -> robotPoseLength = JsonHandler.readDoubleArray(reader, robotPose);
+                    case "ts" -> timestamp = reader.nextDouble();
+                    case "Fiducial" -> decodeFiducials(reader);
+                    default -> reader.skipValue();
                 }
-                return null;
             }
+            reader.endObject();
+        }
+
+        private void decodeFiducials(JsonReader reader) throws IOException {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                ensureFiducialsCapacity(fiducialsCount + 1);
+                decodeFiducial(reader, fiducialsCount);
+                fiducialsCount++;
+            }
+            reader.endArray();
+        }
 
-            private static class Fiducial {
-                private int fID;
-                private String fam;
-                private double[] pts;
-                private double[] skew;
-                private double[] t6c_ts, t6r_fs, t6r_ts, t6t_cs, t6t_rs;
-                private double ta, tx, txp, ty, typ;
+        private void decodeFiducial(JsonReader reader, int index) throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "fID" -> fiducialsId[index] = reader.nextInt();
+                    case "tx" -> fiducialsTx[index] = reader.nextDouble();
+                    case "ty" -> fiducialsTy[index] = reader.nextDouble();
+                    case "ta" -> fiducialsTa[index] = reader.nextDouble();
+                    default -> reader.skipValue();
+                }
             }
+            reader.endObject();
+        }
+
+        private void ensureFiducialsCapacity(int capacity) {
+            if (capacity <= fiducialsId.length)
+                return;
+
+            final int newCapacity = fiducialsId.length * 2;
+            fiducialsId = Arrays.copyOf(fiducialsId, newCapacity);
+            fiducialsTx = Arrays.copyOf(fiducialsTx, newCapacity);
+            fiducialsTy = Arrays.copyOf(fiducialsTy, newCapacity);
+            fiducialsTa = Arrays.copyOf(fiducialsTa, newCapacity);
+        }
+
+        private void clear() {
+            robotPoseLength = 0;
+            timestamp = 0;
+            fiducialsCount = 0;
         }
     }
 }
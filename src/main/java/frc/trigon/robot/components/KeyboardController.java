@@ -1,414 +1,485 @@
 package frc.trigon.robot.components;
 
+import edu.wpi.first.networktables.IntegerArraySubscriber;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
-import org.littletonrobotics.junction.networktables.LoggedDashboardBoolean;
-
-public class KeyboardController {
-    private final LoggedDashboardBoolean
-            esc, f1, f2, f3, f4, f5, f6, f7, f8, f9, f10,
-            f11, f12, delete, backtick, one, two, three, four,
-            five, six, seven, eight, nine, zero, minus, equals,
-            backspace, tab, q, w, e, r, t, y, u, i, o, p, a, s,
-            d, f, g, h, j, k, l, semicolon, apostrophe, leftShift,
-            z, x, c, v, b, n, m, comma, period,
-            rightShift, leftCtrl, leftAlt, rightCtrl,
-            left, right, up, down, numpad0, numpad1, numpad2,
-            numpad3, numpad4, numpad5, numpad6, numpad7, numpad8,
-            numpad9;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.inputs.LoggableInputs;
+import org.littletonrobotics.junction.networktables.LoggedDashboardInput;
+
+/**
+ * A keyboard that's read from the dashboard.
+ * The dashboard client publishes the state of all the keys as a single bitmask, in the "SmartDashboard/keyboard/keys" integer array topic.
+ * Bit {@code i % 64} of element {@code i / 64} is set while the key at index {@code i} of {@link Key} is pressed.
+ * The names of the keys, ordered by their indices, are published to the "SmartDashboard/keyboard/keyNames" string array topic, so the dashboard client can build the bitmask without hardcoding the order.
+ * The bitmask is read and logged once every loop, and all the triggers are evaluated from it.
+ */
+public class KeyboardController implements LoggedDashboardInput {
+    private static final String
+            KEYS_TOPIC_NAME = "/SmartDashboard/keyboard/keys",
+            KEY_NAMES_TOPIC_NAME = "/SmartDashboard/keyboard/keyNames";
+    private final IntegerArraySubscriber keysSubscriber;
+    private final StringArrayPublisher keyNamesPublisher;
+    private final long[] pressedKeysBitmask = new long[(Key.values().length + Long.SIZE - 1) / Long.SIZE];
+    private final LoggableInputs inputs = new LoggableInputs() {
+        @Override
+        public void toLog(LogTable table) {
+            table.put("KeysBitmask", pressedKeysBitmask);
+        }
+
+        @Override
+        public void fromLog(LogTable table) {
+            final long[] loggedBitmask = table.get("KeysBitmask", pressedKeysBitmask);
+            System.arraycopy(loggedBitmask, 0, pressedKeysBitmask, 0, Math.min(loggedBitmask.length, pressedKeysBitmask.length));
+        }
+    };
 
     /**
      * Construct an instance of a device.
      */
     public KeyboardController() {
-        esc = new LoggedDashboardBoolean("keyboard/esc", false);
-        f1 = new LoggedDashboardBoolean("keyboard/f1", false);
-        f2 = new LoggedDashboardBoolean("keyboard/f2", false);
-        f3 = new LoggedDashboardBoolean("keyboard/f3", false);
-        f4 = new LoggedDashboardBoolean("keyboard/f4", false);
-        f5 = new LoggedDashboardBoolean("keyboard/f5", false);
-        f6 = new LoggedDashboardBoolean("keyboard/f6", false);
-        f7 = new LoggedDashboardBoolean("keyboard/f7", false);
-        f8 = new LoggedDashboardBoolean("keyboard/f8", false);
-        f9 = new LoggedDashboardBoolean("keyboard/f9", false);
-        f10 = new LoggedDashboardBoolean("keyboard/f10", false);
-        f11 = new LoggedDashboardBoolean("keyboard/f11", false);
-        f12 = new LoggedDashboardBoolean("keyboard/f12", false);
-        delete = new LoggedDashboardBoolean("keyboard/delete", false);
-        backtick = new LoggedDashboardBoolean("keyboard/`", false);
-        one = new LoggedDashboardBoolean("keyboard/1", false);
-        two = new LoggedDashboardBoolean("keyboard/2", false);
-        three = new LoggedDashboardBoolean("keyboard/3", false);
-        four = new LoggedDashboardBoolean("keyboard/4", false);
-        five = new LoggedDashboardBoolean("keyboard/5", false);
-        six = new LoggedDashboardBoolean("keyboard/6", false);
-        seven = new LoggedDashboardBoolean("keyboard/7", false);
-        eight = new LoggedDashboardBoolean("keyboard/8", false);
-        nine = new LoggedDashboardBoolean("keyboard/9", false);
-        zero = new LoggedDashboardBoolean("keyboard/0", false);
-        minus = new LoggedDashboardBoolean("keyboard/-", false);
-        equals = new LoggedDashboardBoolean("keyboard/=", false);
-        backspace = new LoggedDashboardBoolean("keyboard/backspace", false);
-        tab = new LoggedDashboardBoolean("keyboard/tab", false);
-        q = new LoggedDashboardBoolean("keyboard/q", false);
-        w = new LoggedDashboardBoolean("keyboard/w", false);
-        e = new LoggedDashboardBoolean("keyboard/e", false);
-        r = new LoggedDashboardBoolean("keyboard/r", false);
-        t = new LoggedDashboardBoolean("keyboard/t", false);
-        y = new LoggedDashboardBoolean("keyboard/y", false);
-        u = new LoggedDashboardBoolean("keyboard/u", false);
-        i = new LoggedDashboardBoolean("keyboard/i", false);
-        o = new LoggedDashboardBoolean("keyboard/o", false);
-        p = new LoggedDashboardBoolean("keyboard/p", false);
-        a = new LoggedDashboardBoolean("keyboard/a", false);
-        s = new LoggedDashboardBoolean("keyboard/s", false);
-        d = new LoggedDashboardBoolean("keyboard/d", false);
-        f = new LoggedDashboardBoolean("keyboard/f", false);
-        g = new LoggedDashboardBoolean("keyboard/g", false);
-        h = new LoggedDashboardBoolean("keyboard/h", false);
-        j = new LoggedDashboardBoolean("keyboard/j", false);
-        k = new LoggedDashboardBoolean("keyboard/k", false);
-        l = new LoggedDashboardBoolean("keyboard/l", false);
-        semicolon = new LoggedDashboardBoolean("keyboard/;", false);
-        apostrophe = new LoggedDashboardBoolean("keyboard/'", false);
-        leftShift = new LoggedDashboardBoolean("keyboard/shift", false);
-        z = new LoggedDashboardBoolean("keyboard/z", false);
-        x = new LoggedDashboardBoolean("keyboard/x", false);
-        c = new LoggedDashboardBoolean("keyboard/c", false);
-        v = new LoggedDashboardBoolean("keyboard/v", false);
-        b = new LoggedDashboardBoolean("keyboard/b", false);
-        n = new LoggedDashboardBoolean("keyboard/n", false);
-        m = new LoggedDashboardBoolean("keyboard/m", false);
-        comma = new LoggedDashboardBoolean("keyboard/,", false);
-        period = new LoggedDashboardBoolean("keyboard/.", false);
-        rightShift = new LoggedDashboardBoolean("keyboard/right shift", false);
-        leftCtrl = new LoggedDashboardBoolean("keyboard/ctrl", false);
-        leftAlt = new LoggedDashboardBoolean("keyboard/alt", false);
-        rightCtrl = new LoggedDashboardBoolean("keyboard/right ctrl", false);
-        left = new LoggedDashboardBoolean("keyboard/left", false);
-        right = new LoggedDashboardBoolean("keyboard/right", false);
-        up = new LoggedDashboardBoolean("keyboard/up", false);
-        down = new LoggedDashboardBoolean("keyboard/down", false);
-        numpad0 = new LoggedDashboardBoolean("keyboard/numpad0", false);
-        numpad1 = new LoggedDashboardBoolean("keyboard/numpad1", false);
-        numpad2 = new LoggedDashboardBoolean("keyboard/numpad2", false);
-        numpad3 = new LoggedDashboardBoolean("keyboard/numpad3", false);
-        numpad4 = new LoggedDashboardBoolean("keyboard/numpad4", false);
-        numpad5 = new LoggedDashboardBoolean("keyboard/numpad5", false);
-        numpad6 = new LoggedDashboardBoolean("keyboard/numpad6", false);
-        numpad7 = new LoggedDashboardBoolean("keyboard/numpad7", false);
-        numpad8 = new LoggedDashboardBoolean("keyboard/numpad8", false);
-        numpad9 = new LoggedDashboardBoolean("keyboard/numpad9", false);
+        keysSubscriber = NetworkTableInstance.getDefault().getIntegerArrayTopic(KEYS_TOPIC_NAME).subscribe(new long[0]);
+        keyNamesPublisher = NetworkTableInstance.getDefault().getStringArrayTopic(KEY_NAMES_TOPIC_NAME).publish();
+        keyNamesPublisher.set(getKeyNames());
+        Logger.registerDashboardInput(this);
+    }
+
+    /**
+     * Reads the bitmask of the pressed keys. This is called by the logger once every loop, before the robot code runs.
+     */
+    @Override
+    public void periodic() {
+        if (!Logger.hasReplaySource()) {
+            final long[] publishedBitmask = keysSubscriber.get();
+            for (int i = 0; i < pressedKeysBitmask.length; i++)
+                pressedKeysBitmask[i] = i < publishedBitmask.length ? publishedBitmask[i] : 0;
+        }
+        Logger.processInputs("DashboardInputs/keyboard", inputs);
     }
 
     public Trigger esc() {
-        return new Trigger(esc::get);
+        return keyTrigger(Key.ESC);
     }
 
     public Trigger f1() {
-        return new Trigger(f1::get);
+        return keyTrigger(Key.F1);
     }
 
     public Trigger f2() {
-        return new Trigger(f2::get);
+        return keyTrigger(Key.F2);
     }
 
     public Trigger f3() {
-        return new Trigger(f3::get);
+        return keyTrigger(Key.F3);
     }
 
     public Trigger f4() {
-        return new Trigger(f4::get);
+        return keyTrigger(Key.F4);
     }
 
     public Trigger f5() {
-        return new Trigger(f5::get);
+        return keyTrigger(Key.F5);
     }
 
     public Trigger f6() {
-        return new Trigger(f6::get);
+        return keyTrigger(Key.F6);
     }
 
     public Trigger f7() {
-        return new Trigger(f7::get);
+        return keyTrigger(Key.F7);
     }
 
     public Trigger f8() {
-        return new Trigger(f8::get);
+        return keyTrigger(Key.F8);
     }
 
     public Trigger f9() {
-        return new Trigger(f9::get);
+        return keyTrigger(Key.F9);
     }
 
     public Trigger f10() {
-        return new Trigger(f10::get);
+        return keyTrigger(Key.F10);
     }
 
     public Trigger f11() {
-        return new Trigger(f11::get);
+        return keyTrigger(Key.F11);
     }
 
     public Trigger f12() {
-        return new Trigger(f12::get);
+        return keyTrigger(Key.F12);
     }
 
     public Trigger delete() {
-        return new Trigger(delete::get);
+        return keyTrigger(Key.DELETE);
     }
 
     public Trigger backtick() {
-        return new Trigger(backtick::get);
+        return keyTrigger(Key.BACKTICK);
     }
 
     public Trigger one() {
-        return new Trigger(one::get);
+        return keyTrigger(Key.ONE);
     }
 
     public Trigger two() {
-        return new Trigger(two::get);
+        return keyTrigger(Key.TWO);
     }
 
     public Trigger three() {
-        return new Trigger(three::get);
+        return keyTrigger(Key.THREE);
     }
 
     public Trigger four() {
-        return new Trigger(four::get);
+        return keyTrigger(Key.FOUR);
     }
 
     public Trigger five() {
-        return new Trigger(five::get);
+        return keyTrigger(Key.FIVE);
     }
 
     public Trigger six() {
-        return new Trigger(six::get);
+        return keyTrigger(Key.SIX);
     }
 
     public Trigger seven() {
-        return new Trigger(seven::get);
+        return keyTrigger(Key.SEVEN);
     }
 
     public Trigger eight() {
-        return new Trigger(eight::get);
+        return keyTrigger(Key.EIGHT);
     }
 
     public Trigger nine() {
-        return new Trigger(nine::get);
+        return keyTrigger(Key.NINE);
     }
 
     public Trigger zero() {
-        return new Trigger(zero::get);
+        return keyTrigger(Key.ZERO);
     }
 
     public Trigger minus() {
-        return new Trigger(minus::get);
+        return keyTrigger(Key.MINUS);
     }
 
     public Trigger equals() {
-        return new Trigger(equals::get);
+        return keyTrigger(Key.EQUALS);
     }
 
     public Trigger backspace() {
-        return new Trigger(backspace::get);
+        return keyTrigger(Key.BACKSPACE);
     }
 
     public Trigger tab() {
-        return new Trigger(tab::get);
+        return keyTrigger(Key.TAB);
     }
 
     public Trigger q() {
-        return new Trigger(q::get);
+        return keyTrigger(Key.Q);
     }
 
     public Trigger w() {
-        return new Trigger(w::get);
+        return keyTrigger(Key.W);
     }
 
     public Trigger e() {
-        return new Trigger(e::get);
+        return keyTrigger(Key.E);
     }
 
     public Trigger r() {
-        return new Trigger(r::get);
+        return keyTrigger(Key.R);
     }
 
     public Trigger t() {
-        return new Trigger(t::get);
+        return keyTrigger(Key.T);
     }
 
     public Trigger y() {
-        return new Trigger(y::get);
+        return keyTrigger(Key.Y);
     }
 
     public Trigger u() {
-        return new Trigger(u::get);
+        return keyTrigger(Key.U);
     }
 
     public Trigger i() {
-        return new Trigger(i::get);
+        return keyTrigger(Key.I);
     }
 
     public Trigger o() {
-        return new Trigger(o::get);
+        return keyTrigger(Key.O);
     }
 
     public Trigger p() {
-        return new Trigger(p::get);
+        return keyTrigger(Key.P);
     }
 
     public Trigger a() {
-        return new Trigger(a::get);
+        return keyTrigger(Key.A);
     }
 
     public Trigger s() {
-        return new Trigger(s::get);
+        return keyTrigger(Key.S);
     }
 
     public Trigger d() {
-        return new Trigger(d::get);
+        return keyTrigger(Key.D);
     }
 
     public Trigger f() {
-        return new Trigger(f::get);
+        return keyTrigger(Key.F);
     }
 
     public Trigger g() {
-        return new Trigger(g::get);
+        return keyTrigger(Key.G);
     }
 
     public Trigger h() {
-        return new Trigger(h::get);
+        return keyTrigger(Key.H);
     }
 
     public Trigger j() {
-        return new Trigger(j::get);
+        return keyTrigger(Key.J);
     }
 
     public Trigger k() {
-        return new Trigger(k::get);
+        return keyTrigger(Key.K);
     }
 
     public Trigger l() {
-        return new Trigger(l::get);
+        return keyTrigger(Key.L);
     }
 
     public Trigger semicolon() {
-        return new Trigger(semicolon::get);
+        return keyTrigger(Key.SEMICOLON);
     }
 
     public Trigger apostrophe() {
-        return new Trigger(apostrophe::get);
+        return keyTrigger(Key.APOSTROPHE);
     }
 
     public Trigger leftShift() {
-        return new Trigger(leftShift::get);
+        return keyTrigger(Key.LEFT_SHIFT);
     }
 
     public Trigger z() {
-        return new Trigger(z::get);
+        return keyTrigger(Key.Z);
     }
 
     public Trigger x() {
-        return new Trigger(x::get);
+        return keyTrigger(Key.X);
     }
 
     public Trigger c() {
-        return new Trigger(c::get);
+        return keyTrigger(Key.C);
     }
 
     public Trigger v() {
-        return new Trigger(v::get);
+        return keyTrigger(Key.V);
     }
 
     public Trigger b() {
-        return new Trigger(b::get);
+        return keyTrigger(Key.B);
     }
 
     public Trigger n() {
-        return new Trigger(n::get);
+        return keyTrigger(Key.N);
     }
 
     public Trigger m() {
-        return new Trigger(m::get);
+        return keyTrigger(Key.M);
     }
 
     public Trigger comma() {
-        return new Trigger(comma::get);
+        return keyTrigger(Key.COMMA);
     }
 
     public Trigger period() {
-        return new Trigger(period::get);
+        return keyTrigger(Key.PERIOD);
     }
 
     public Trigger rightShift() {
-        return new Trigger(rightShift::get);
+        return keyTrigger(Key.RIGHT_SHIFT);
     }
 
     public Trigger leftCtrl() {
-        return new Trigger(leftCtrl::get);
+        return keyTrigger(Key.LEFT_CTRL);
     }
 
     public Trigger leftAlt() {
-        return new Trigger(leftAlt::get);
+        return keyTrigger(Key.LEFT_ALT);
     }
 
     public Trigger rightCtrl() {
-        return new Trigger(rightCtrl::get);
+        return keyTrigger(Key.RIGHT_CTRL);
     }
 
     public Trigger left() {
-        return new Trigger(left::get);
+        return keyTrigger(Key.LEFT);
     }
 
     public Trigger right() {
-        return new Trigger(right::get);
+        return keyTrigger(Key.RIGHT);
     }
 
     public Trigger up() {
-        return new Trigger(up::get);
+        return keyTrigger(Key.UP);
     }
 
     public Trigger down() {
-        return new Trigger(down::get);
+        return keyTrigger(Key.DOWN);
     }
 
     public Trigger numpad0() {
-        return new Trigger(numpad0::get);
+        return keyTrigger(Key.NUMPAD0);
     }
 
     public Trigger numpad1() {
-        return new Trigger(numpad1::get);
+        return keyTrigger(Key.NUMPAD1);
     }
 
     public Trigger numpad2() {
-        return new Trigger(numpad2::get);
+        return keyTrigger(Key.NUMPAD2);
     }
 
     public Trigger numpad3() {
-        return new Trigger(numpad3::get);
+        return keyTrigger(Key.NUMPAD3);
     }
 
     public Trigger numpad4() {
-        return new Trigger(numpad4::get);
+        return keyTrigger(Key.NUMPAD4);
     }
 
     public Trigger numpad5() {
-        return new Trigger(numpad5::get);
+        return keyTrigger(Key.NUMPAD5);
     }
 
     public Trigger numpad6() {
-        return new Trigger(numpad6::get);
+        return keyTrigger(Key.NUMPAD6);
     }
 
     public Trigger numpad7() {
-        return new Trigger(numpad7::get);
+        return keyTrigger(Key.NUMPAD7);
     }
 
     public Trigger numpad8() {
-        return new Trigger(numpad8::get);
+        return keyTrigger(Key.NUMPAD8);
     }
 
     public Trigger numpad9() {
-        return new Trigger(numpad9::get);
+        return keyTrigger(Key.NUMPAD9);
+    }
+
+    private String[] getKeyNames() {
+        final Key[] keys = Key.values();
+        final String[] keyNames = new String[keys.length];
+
+        for (int i = 0; i < keys.length; i++)
+            keyNames[i] = keys[i].keyName;
+
+        return keyNames;
+    }
+
+    private Trigger keyTrigger(Key key) {
+        return new Trigger(() -> isPressed(key));
+    }
+
+    private boolean isPressed(Key key) {
+        final int index = key.ordinal();
+        return (pressedKeysBitmask[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0;
+    }
+
+    /**
+     * The keys of the keyboard, in the order of their bits in the bitmask.
+     */
+    public enum Key {
+        ESC("esc"),
+        F1("f1"),
+        F2("f2"),
+        F3("f3"),
+        F4("f4"),
+        F5("f5"),
+        F6("f6"),
+        F7("f7"),
+        F8("f8"),
+        F9("f9"),
+        F10("f10"),
+        F11("f11"),
+        F12("f12"),
+        DELETE("delete"),
+        BACKTICK("`"),
+        ONE("1"),
+        TWO("2"),
+        THREE("3"),
+        FOUR("4"),
+        FIVE("5"),
+        SIX("6"),
+        SEVEN("7"),
+        EIGHT("8"),
+        NINE("9"),
+        ZERO("0"),
+        MINUS("-"),
+        EQUALS("="),
+        BACKSPACE("backspace"),
+        TAB("tab"),
+        Q("q"),
+        W("w"),
+        E("e"),
+        R("r"),
+        T("t"),
+        Y("y"),
+        U("u"),
+        I("i"),
+        O("o"),
+        P("p"),
+        A("a"),
+        S("s"),
+        D("d"),
+        F("f"),
+        G("g"),
+        H("h"),
+        J("j"),
+        K("k"),
+        L("l"),
+        SEMICOLON(";"),
+        APOSTROPHE("'"),
+        LEFT_SHIFT("shift"),
+        Z("z"),
+        X("x"),
+        C("c"),
+        V("v"),
+        B("b"),
+        N("n"),
+        M("m"),
+        COMMA(","),
+        PERIOD("."),
+        RIGHT_SHIFT("right shift"),
+        LEFT_CTRL("ctrl"),
+        LEFT_ALT("alt"),
+        RIGHT_CTRL("right ctrl"),
+        LEFT("left"),
+        RIGHT("right"),
+        UP("up"),
+        DOWN("down"),
+        NUMPAD0("numpad0"),
+        NUMPAD1("numpad1"),
+        NUMPAD2("numpad2"),
+        NUMPAD3("numpad3"),
+        NUMPAD4("numpad4"),
+        NUMPAD5("numpad5"),
+        NUMPAD6("numpad6"),
+        NUMPAD7("numpad7"),
+        NUMPAD8("numpad8"),
+        NUMPAD9("numpad9");
+
+        /**
+         * The name of the key, as the dashboard client names it. The names are published in the order of the keys, as the mapping from bit index to key.
+         */
+        public final String keyName;
+
+        Key(String keyName) {
+            this.keyName = keyName;
+        }
     }
 }
@@ -3,6 +3,8 @@ package frc.trigon.robot.components;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 
 public class XboxController extends CommandXboxController {
+    private static final int SHAPING_TABLE_RESOLUTION = 256;
+    private final double[] shapingTable = new double[SHAPING_TABLE_RESOLUTION + 1];
     private int exponent = 1;
     private double deadband = 0;
 
@@ -13,6 +15,7 @@ public class XboxController extends CommandXboxController {
      */
     public XboxController(int port) {
         super(port);
+        updateShapingTable();
     }
 
     /**
@@ -26,6 +29,7 @@ public class XboxController extends CommandXboxController {
         this(port);
         this.exponent = exponent;
         this.deadband = deadband;
+        updateShapingTable();
     }
 
     /**
@@ -35,6 +39,7 @@ public class XboxController extends CommandXboxController {
      */
     public void setExponent(int exponent) {
         this.exponent = exponent;
+        updateShapingTable();
     }
 
     /**
@@ -76,11 +81,28 @@ public class XboxController extends CommandXboxController {
         return super.getHID().getPOV();
     }
 
-    private double calculateValue(double value) {
-        if (Math.abs(value) < deadband)
+    /**
+     * Applies the deadband and the exponent to a raw axis value.
+     * The exponent is read from a lookup table that's precomputed whenever the exponent changes, so no {@link Math#pow(double, double)} is called per read.
+     * The value is also inverted, so pushing a stick forward or right gives a positive value.
+     *
+     * @param value the raw axis value, between -1 and 1
+     * @return the shaped value
+     */
+    public double calculateValue(double value) {
+        final double absoluteValue = Math.abs(value);
+        if (absoluteValue < deadband)
             return 0;
 
-        final double exponentiatedValue = Math.pow(value, exponent);
-        return Math.abs(exponentiatedValue) * -Math.signum(value);
+        final double tableIndex = Math.min(absoluteValue, 1) * SHAPING_TABLE_RESOLUTION;
+        final int lowerIndex = Math.min((int) tableIndex, SHAPING_TABLE_RESOLUTION - 1);
+        final double t = tableIndex - lowerIndex;
+        final double exponentiatedValue = shapingTable[lowerIndex] + (shapingTable[lowerIndex + 1] - shapingTable[lowerIndex]) * t;
+        return exponentiatedValue * -Math.signum(value);
+    }
+
+    private void updateShapingTable() {
+        for (int i = 0; i <= SHAPING_TABLE_RESOLUTION; i++)
+            shapingTable[i] = Math.pow((double) i / SHAPING_TABLE_RESOLUTION, exponent);
     }
 }
@@ -1,7 +1,10 @@
 package frc.trigon.robot.constants;
 
+import edu.wpi.first.apriltag.AprilTagFields;
+
 public class FieldConstants {
     public static final double
             FIELD_LENGTH_METERS = 16.54175,
             FIELD_WIDTH_METERS = 8.02;
+    public static final AprilTagFields APRIL_TAG_FIELD = AprilTagFields.k2023ChargedUp;
 }
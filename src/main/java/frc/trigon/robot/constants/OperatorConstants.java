@@ -2,6 +2,7 @@ package frc.trigon.robot.constants;
 
 import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.trigon.robot.components.DriverInputs;
 import frc.trigon.robot.components.KeyboardController;
 import frc.trigon.robot.components.XboxController;
 
@@ -10,9 +11,18 @@ public class OperatorConstants {
             DRIVER_CONTROLLER_PORT = 0;
     private static final int DRIVER_CONTROLLER_EXPONENT = 1;
     private static final double DRIVER_CONTROLLER_DEADBAND = 0.1;
+    private static final double
+            MINIMUM_TRANSLATION_SHIFT_POWER = 0.18,
+            MINIMUM_ROTATION_SHIFT_POWER = 0.3;
+    private static final double
+            DRIVER_TRANSLATION_SLEW_RATE = 0,
+            DRIVER_ROTATION_SLEW_RATE = 0;
     public static final XboxController DRIVER_CONTROLLER = new XboxController(
             DRIVER_CONTROLLER_PORT, DRIVER_CONTROLLER_EXPONENT, DRIVER_CONTROLLER_DEADBAND
     );
+    public static final DriverInputs DRIVER_INPUTS = new DriverInputs(
+            DRIVER_CONTROLLER, MINIMUM_TRANSLATION_SHIFT_POWER, MINIMUM_ROTATION_SHIFT_POWER, DRIVER_TRANSLATION_SLEW_RATE, DRIVER_ROTATION_SLEW_RATE
+    );
     public static final KeyboardController OPERATOR_CONTROLLER = new KeyboardController();
 
     public static final double
@@ -23,5 +33,5 @@ public class OperatorConstants {
             RESET_HEADING_TRIGGER = DRIVER_CONTROLLER.y(),
             TOGGLE_BRAKE_TRIGGER = OPERATOR_CONTROLLER.g().or(RobotController::getUserButton),
             TOGGLE_FIELD_AND_SELF_RELATIVE_DRIVE_TRIGGER = DRIVER_CONTROLLER.b(),
-            DRIVE_FROM_DPAD_TRIGGER = new Trigger(() -> DRIVER_CONTROLLER.getPov() != -1);
+            DRIVE_FROM_DPAD_TRIGGER = new Trigger(DRIVER_INPUTS::isPovPressed);
 }
@@ -0,0 +1,78 @@
+package frc.trigon.robot.poseestimation.photonposeestimator;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N5;
+import org.littletonrobotics.junction.Logger;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link PoseEstimationStrategy} that measures another strategy.
+ * It records the strategy's execution time, how many estimates succeeded and how many fell back to the next strategy, and the average residual of the successful estimates.
+ * The metrics are updated from the thread that runs the strategy, and can be logged from any other thread.
+ */
+public class MeasuredPoseEstimationStrategy implements PoseEstimationStrategy {
+    private final String name;
+    private final PoseEstimationStrategy strategy;
+    private final ToDoubleFunction<EstimatedRobotPose> residualFunction;
+    private int successCount = 0, fallbackCount = 0;
+    private double totalExecutionTimeSeconds = 0, lastExecutionTimeSeconds = 0, totalResidual = 0;
+
+    /**
+     * Constructs a new MeasuredPoseEstimationStrategy.
+     *
+     * @param name             the name of the strategy, used as its logging path
+     * @param strategy         the strategy to measure
+     * @param residualFunction the function that calculates the residual of an estimate, which should be lower for more accurate estimates
+     */
+    public MeasuredPoseEstimationStrategy(String name, PoseEstimationStrategy strategy, ToDoubleFunction<EstimatedRobotPose> residualFunction) {
+        this.name = name;
+        this.strategy = strategy;
+        this.residualFunction = residualFunction;
+    }
+
+    @Override
+    public Optional<EstimatedRobotPose> estimate(PhotonPipelineResult result, Optional<Matrix<N3, N3>> cameraMatrix, Optional<Matrix<N5, N1>> distCoeffs) {
+        final long startTimeMicroseconds = Logger.getRealTimestamp();
+        final Optional<EstimatedRobotPose> estimatedPose = strategy.estimate(result, cameraMatrix, distCoeffs);
+        final double executionTimeSeconds = (Logger.getRealTimestamp() - startTimeMicroseconds) / 1e6;
+        final double residual = estimatedPose.isPresent() ? residualFunction.applyAsDouble(estimatedPose.get()) : 0;
+
+        synchronized (this) {
+            lastExecutionTimeSeconds = executionTimeSeconds;
+            totalExecutionTimeSeconds += executionTimeSeconds;
+            if (estimatedPose.isPresent()) {
+                successCount++;
+                totalResidual += residual;
+            } else {
+                fallbackCount++;
+            }
+        }
+
+        return estimatedPose;
+    }
+
+    /**
+     * Logs the strategy's metrics.
+     *
+     * @param loggingPath the path to log the metrics under, the strategy's name is appended to it
+     */
+    public synchronized void logMetrics(String loggingPath) {
+        final String strategyPath = loggingPath + name + "/";
+        final int attemptsCount = successCount + fallbackCount;
+
+        Logger.recordOutput(strategyPath + "SuccessCount", successCount);
+        Logger.recordOutput(strategyPath + "FallbackCount", fallbackCount);
+        Logger.recordOutput(strategyPath + "LastExecutionTimeSeconds", lastExecutionTimeSeconds);
+        Logger.recordOutput(strategyPath + "AverageExecutionTimeSeconds", attemptsCount == 0 ? 0 : totalExecutionTimeSeconds / attemptsCount);
+        Logger.recordOutput(strategyPath + "AverageResidual", successCount == 0 ? 0 : totalResidual / successCount);
+    }
+
+    public String getName() {
+        return name;
+    }
+}
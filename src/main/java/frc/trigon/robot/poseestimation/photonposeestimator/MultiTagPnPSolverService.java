@@ -0,0 +1,108 @@
+package frc.trigon.robot.poseestimation.photonposeestimator;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N5;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service that runs multi-tag PnP solves on a small pool of worker threads, so the threads that read the cameras never block on a solve.
+ * Solves are queued in a bounded queue. When the queue is full, the oldest queued frame is dropped in favor of the new one, since a newer frame is always more useful than a stale one.
+ * The future of a dropped frame is cancelled, so it can be told apart from a frame that was solved, but had no solution.
+ */
+public class MultiTagPnPSolverService {
+    private static final int
+            WORKER_COUNT = 2,
+            QUEUE_CAPACITY = 4;
+    private static final MultiTagPnPSolverService INSTANCE = new MultiTagPnPSolverService();
+
+    private final AtomicInteger droppedFramesCount = new AtomicInteger();
+    private final ThreadPoolExecutor executor;
+
+    public static MultiTagPnPSolverService getInstance() {
+        return INSTANCE;
+    }
+
+    private MultiTagPnPSolverService() {
+        final AtomicInteger workerIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                WORKER_COUNT,
+                WORKER_COUNT,
+                0,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                (runnable) -> {
+                    final Thread thread = new Thread(runnable, "MultiTagPnPSolver" + workerIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                this::dropOldestSolve
+        );
+    }
+
+    /**
+     * Submits a frame to be solved.
+     * The estimate keeps the frame's original timestamp, so it can be applied as a measurement from the time the frame was captured.
+     *
+     * @param strategy     the strategy that solves the frame. It's called from a worker thread, so it must not modify shared state
+     * @param result       the frame to solve
+     * @param cameraMatrix the camera's calibration matrix
+     * @param distCoeffs   the camera's distortion coefficients
+     * @return a future that's completed with the estimate once the solve is done, or cancelled if the frame was dropped
+     */
+    public CompletableFuture<Optional<EstimatedRobotPose>> submit(PoseEstimationStrategy strategy, PhotonPipelineResult result, Optional<Matrix<N3, N3>> cameraMatrix, Optional<Matrix<N5, N1>> distCoeffs) {
+        final SolveTask task = new SolveTask(strategy, result, cameraMatrix, distCoeffs);
+        executor.execute(task);
+        return task.future;
+    }
+
+    /**
+     * @return the amount of frames that were dropped since the service started, because the queue was full
+     */
+    public int getDroppedFramesCount() {
+        return droppedFramesCount.get();
+    }
+
+    private void dropOldestSolve(Runnable rejectedTask, ThreadPoolExecutor executor) {
+        final Runnable oldestTask = executor.getQueue().poll();
+        if (oldestTask instanceof SolveTask)
+            dropSolve((SolveTask) oldestTask);
+
+        if (!executor.getQueue().offer(rejectedTask) && rejectedTask instanceof SolveTask)
+            dropSolve((SolveTask) rejectedTask);
+    }
+
+    private void dropSolve(SolveTask task) {
+        droppedFramesCount.incrementAndGet();
+        task.future.cancel(false);
+    }
+
+    private static class SolveTask implements Runnable {
+        private final CompletableFuture<Optional<EstimatedRobotPose>> future = new CompletableFuture<>();
+        private final PoseEstimationStrategy strategy;
+        private final PhotonPipelineResult result;
+        private final Optional<Matrix<N3, N3>> cameraMatrix;
+        private final Optional<Matrix<N5, N1>> distCoeffs;
+
+        private SolveTask(PoseEstimationStrategy strategy, PhotonPipelineResult result, Optional<Matrix<N3, N3>> cameraMatrix, Optional<Matrix<N5, N1>> distCoeffs) {
+            this.strategy = strategy;
+            this.result = result;
+            this.cameraMatrix = cameraMatrix;
+            this.distCoeffs = distCoeffs;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(strategy.estimate(result, cameraMatrix, distCoeffs));
+            } catch (RuntimeException exception) {
+                future.completeExceptionally(exception);
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ package frc.trigon.robot.poseestimation.photonposeestimator;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.geometry.*;
@@ -35,6 +36,7 @@ import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.numbers.N5;
 import edu.wpi.first.wpilibj.DriverStation;
 import frc.trigon.robot.subsystems.swerve.Swerve;
+import frc.trigon.robot.utilities.AprilTagLayoutCache;
 import org.photonvision.PhotonCamera;
 import org.photonvision.estimation.TargetModel;
 import org.photonvision.estimation.VisionEstimation;
@@ -42,6 +44,9 @@ import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * The PhotonPoseEstimator class filters or combines readings from all the AprilTags visible at a
@@ -80,15 +85,42 @@ public class PhotonPoseEstimator {
          */
         MULTI_TAG_PNP_ON_RIO,
 
-        CLOSEST_TO_HEADING
+        CLOSEST_TO_HEADING,
+
+        /**
+         * Use all visible tags, with the gyro heading as a hard constraint. The robot's translation is
+         * solved in closed form from every tag's yaw, pitch and known height, and the solutions are
+         * fused using weighted least squares. This is much cheaper than solvePnP, and can't flip
+         * between ambiguous solutions.
+         */
+        HEADING_CONSTRAINED_TRIANGULATION
     }
 
+    /**
+     * The minimum sine of the angle between the camera's ray to a tag and the floor. Below it, the
+     * tag's height barely changes the ray, so its range can't be solved accurately.
+     */
+    private static final double MINIMUM_TAG_ELEVATION_SINE = 0.02;
+
     private AprilTagFieldLayout fieldTags;
     private TargetModel tagModel = TargetModel.kAprilTag16h5;
     private PoseStrategy primaryStrategy;
     private PoseStrategy multiTagFallbackStrategy = PoseStrategy.LOWEST_AMBIGUITY;
+    private final Map<PoseStrategy, MeasuredPoseEstimationStrategy> registeredStrategies =
+            new EnumMap<>(PoseStrategy.class);
+    private PoseStrategy[] strategyChain;
+    private PoseEstimationStrategy activeStrategy;
+    private PoseEstimationStrategy fallbackChainStrategy;
     private final PhotonCamera camera;
     private Transform3d robotToCamera;
+    private Transform3d cameraToRobot;
+    private AprilTagLayoutCache fieldTagsCache;
+    private final double[] candidateCameraTranslation = new double[3],
+            candidateCameraQuaternion = new double[4],
+            candidateRobotTranslation = new double[3],
+            candidateRobotQuaternion = new double[4],
+            rotatedVector = new double[3],
+            robotToCameraQuaternion = new double[4];
 
     private Pose3d lastPose;
     private Pose3d referencePose;
@@ -119,6 +151,12 @@ public class PhotonPoseEstimator {
         this.primaryStrategy = strategy;
         this.camera = camera;
         this.robotToCamera = robotToCamera;
+        this.cameraToRobot = robotToCamera.inverse();
+        updateRobotToCameraQuaternion();
+        this.fieldTagsCache = AprilTagLayoutCache.of(fieldTags);
+        registerStrategies();
+        this.strategyChain = createDefaultStrategyChain();
+        updateActiveStrategy();
 
         HAL.report(tResourceType.kResourceType_PhotonPoseEstimator, InstanceCount);
         InstanceCount++;
@@ -159,8 +197,19 @@ public class PhotonPoseEstimator {
      * @param fieldTags the AprilTagFieldLayout
      */
     public void setFieldTags(AprilTagFieldLayout fieldTags) {
-        checkUpdate(this.fieldTags, fieldTags);
-        this.fieldTags = fieldTags;
+        setFieldTags(AprilTagLayoutCache.of(fieldTags));
+    }
+
+    /**
+     * Set the AprilTagFieldLayout being used by the PositionEstimator, from an already created cache
+     * of it.
+     *
+     * @param fieldTagsCache the cache of the AprilTagFieldLayout
+     */
+    public void setFieldTags(AprilTagLayoutCache fieldTagsCache) {
+        checkUpdate(this.fieldTags, fieldTagsCache.getLayout());
+        this.fieldTags = fieldTagsCache.getLayout();
+        this.fieldTagsCache = fieldTagsCache;
     }
 
     /**
@@ -198,6 +247,7 @@ public class PhotonPoseEstimator {
     public void setPrimaryStrategy(PoseStrategy strategy) {
         checkUpdate(this.primaryStrategy, strategy);
         this.primaryStrategy = strategy;
+        setStrategyChain(createDefaultStrategyChain());
     }
 
     /**
@@ -215,6 +265,7 @@ public class PhotonPoseEstimator {
             strategy = PoseStrategy.LOWEST_AMBIGUITY;
         }
         this.multiTagFallbackStrategy = strategy;
+        setStrategyChain(createDefaultStrategyChain());
     }
 
     /**
@@ -282,6 +333,8 @@ public class PhotonPoseEstimator {
      */
     public void setRobotToCameraTransform(Transform3d robotToCamera) {
         this.robotToCamera = robotToCamera;
+        this.cameraToRobot = robotToCamera.inverse();
+        updateRobotToCameraQuaternion();
     }
 
     /**
@@ -346,9 +399,80 @@ public class PhotonPoseEstimator {
             PhotonPipelineResult cameraResult,
             Optional<Matrix<N3, N3>> cameraMatrix,
             Optional<Matrix<N5, N1>> distCoeffs) {
+        if (!isNewResultWithTargets(cameraResult)) return Optional.empty();
+
+        return estimate(cameraResult, cameraMatrix, distCoeffs);
+    }
+
+    /**
+     * Updates the estimated position of the robot without blocking on multi-tag PnP. If the primary
+     * strategy is {@link PoseStrategy#MULTI_TAG_PNP_ON_RIO} and the result can be solved with it, the
+     * solve is submitted to the {@link MultiTagPnPSolverService}. Otherwise, the estimate is
+     * calculated immediately, like in {@link #update(PhotonPipelineResult)}.
+     *
+     * <p>A frame that failed to solve is estimated with the rest of the strategy chain, like in {@link
+     * #update(PhotonPipelineResult)}, and a frame that was dropped by the service completes with an
+     * empty result, since a newer frame replaced it. The rest of the chain shares
+     * state with this estimator, so it's run by the given executor rather than by the service's
+     * threads, and the executor must run it on the thread that updates this estimator.
+     *
+     * @param cameraResult The latest pipeline result from the camera
+     * @param fallbackExecutor the executor that runs the rest of the chain for frames that weren't
+     *     solved
+     * @return a future of the estimated pose, which keeps the timestamp of the pipeline result
+     */
+    public CompletableFuture<Optional<EstimatedRobotPose>> updateAsync(
+            PhotonPipelineResult cameraResult, Executor fallbackExecutor) {
+        Optional<Matrix<N3, N3>> cameraMatrix =
+                camera == null ? Optional.empty() : camera.getCameraMatrix();
+        Optional<Matrix<N5, N1>> distCoeffs =
+                camera == null ? Optional.empty() : camera.getDistCoeffs();
+
+        if (!isNewResultWithTargets(cameraResult))
+            return CompletableFuture.completedFuture(Optional.empty());
+
+        if (primaryStrategy != PoseStrategy.MULTI_TAG_PNP_ON_RIO
+                || !canRunMultiTagOnRio(cameraResult, cameraMatrix, distCoeffs))
+            return CompletableFuture.completedFuture(estimate(cameraResult, cameraMatrix, distCoeffs));
+
+        PoseEstimationStrategy fallbackStrategy = fallbackChainStrategy;
+        return MultiTagPnPSolverService.getInstance()
+                .submit(
+                        registeredStrategies.get(PoseStrategy.MULTI_TAG_PNP_ON_RIO),
+                        cameraResult,
+                        cameraMatrix,
+                        distCoeffs)
+                .handle(
+                        (estimatedPose, exception) -> {
+                            if (exception instanceof CancellationException)
+                                return CompletableFuture.completedFuture(Optional.<EstimatedRobotPose>empty());
+                            if (exception != null)
+                                DriverStation.reportError(
+                                        "[PhotonPoseEstimator] Multi-tag PnP solve failed: " + exception,
+                                        exception.getStackTrace());
+                            else if (estimatedPose.isPresent())
+                                return CompletableFuture.completedFuture(estimatedPose);
+
+                            if (fallbackStrategy == null)
+                                return CompletableFuture.completedFuture(Optional.<EstimatedRobotPose>empty());
+                            return CompletableFuture.supplyAsync(
+                                    () -> estimate(fallbackStrategy, cameraResult, cameraMatrix, distCoeffs),
+                                    fallbackExecutor);
+                        })
+                .thenCompose(fallbackFuture -> fallbackFuture);
+    }
+
+    /**
+     * Checks whether the result should be estimated, and remembers its timestamp so it won't be
+     * estimated again.
+     *
+     * @param cameraResult the pipeline result
+     * @return whether the result is new, and has targets
+     */
+    private boolean isNewResultWithTargets(PhotonPipelineResult cameraResult) {
         // Time in the past -- give up, since the following if expects times > 0
         if (cameraResult.getTimestampSeconds() < 0) {
-            return Optional.empty();
+            return false;
         }
 
         // If the pose cache timestamp was set, and the result is from the same
@@ -356,57 +480,30 @@ public class PhotonPoseEstimator {
         // empty result
         if (poseCacheTimestampSeconds > 0
                 && Math.abs(poseCacheTimestampSeconds - cameraResult.getTimestampSeconds()) < 1e-6) {
-            return Optional.empty();
+            return false;
         }
 
         // Remember the timestamp of the current result used
         poseCacheTimestampSeconds = cameraResult.getTimestampSeconds();
 
         // If no targets seen, trivial case -- return empty result
-        if (!cameraResult.hasTargets()) {
-            return Optional.empty();
-        }
+        return cameraResult.hasTargets();
+    }
 
-        return update(cameraResult, cameraMatrix, distCoeffs, this.primaryStrategy);
+    private Optional<EstimatedRobotPose> estimate(
+            PhotonPipelineResult cameraResult,
+            Optional<Matrix<N3, N3>> cameraMatrix,
+            Optional<Matrix<N5, N1>> distCoeffs) {
+        return estimate(activeStrategy, cameraResult, cameraMatrix, distCoeffs);
     }
 
-    private Optional<EstimatedRobotPose> update(
+    private Optional<EstimatedRobotPose> estimate(
+            PoseEstimationStrategy strategy,
             PhotonPipelineResult cameraResult,
             Optional<Matrix<N3, N3>> cameraMatrix,
-            Optional<Matrix<N5, N1>> distCoeffs,
-            PoseStrategy strat) {
-        Optional<EstimatedRobotPose> estimatedPose;
-        switch (strat) {
-            case LOWEST_AMBIGUITY:
-                estimatedPose = lowestAmbiguityStrategy(cameraResult);
-                break;
-            case CLOSEST_TO_CAMERA_HEIGHT:
-                estimatedPose = closestToCameraHeightStrategy(cameraResult);
-                break;
-            case CLOSEST_TO_REFERENCE_POSE:
-                estimatedPose = closestToReferencePoseStrategy(cameraResult, referencePose);
-                break;
-            case CLOSEST_TO_LAST_POSE:
-                setReferencePose(lastPose);
-                estimatedPose = closestToReferencePoseStrategy(cameraResult, referencePose);
-                break;
-            case AVERAGE_BEST_TARGETS:
-                estimatedPose = averageBestTargetsStrategy(cameraResult);
-                break;
-            case MULTI_TAG_PNP_ON_RIO:
-                estimatedPose = multiTagOnRioStrategy(cameraResult, cameraMatrix, distCoeffs);
-                break;
-            case MULTI_TAG_PNP_ON_COPROCESSOR:
-                estimatedPose = multiTagOnCoprocStrategy(cameraResult, cameraMatrix, distCoeffs);
-                break;
-            case CLOSEST_TO_HEADING:
-                estimatedPose = closestToHeadingStrategy(cameraResult);
-                break;
-            default:
-                DriverStation.reportError(
-                        "[PhotonPoseEstimator] Unknown Position Estimation Strategy!", false);
-                return Optional.empty();
-        }
+            Optional<Matrix<N5, N1>> distCoeffs) {
+        Optional<EstimatedRobotPose> estimatedPose =
+                strategy.estimate(cameraResult, cameraMatrix, distCoeffs);
 
         if (estimatedPose.isEmpty()) {
             lastPose = null;
@@ -415,10 +512,110 @@ public class PhotonPoseEstimator {
         return estimatedPose;
     }
 
+    /**
+     * Log the execution time, success and fallback counts, and average residual of every registered
+     * strategy.
+     *
+     * @param loggingPath the path to log the metrics under
+     */
+    public void logStrategyMetrics(String loggingPath) {
+        for (MeasuredPoseEstimationStrategy strategy : registeredStrategies.values())
+            strategy.logMetrics(loggingPath);
+    }
+
+    /**
+     * Register the implementation of a strategy, replacing the current implementation. The strategy
+     * is measured, and its metrics can be logged with {@link #logStrategyMetrics(String)}.
+     *
+     * @param strategyType the strategy to register the implementation of
+     * @param strategy the implementation
+     */
+    public void registerStrategy(PoseStrategy strategyType, PoseEstimationStrategy strategy) {
+        registeredStrategies.put(
+                strategyType,
+                new MeasuredPoseEstimationStrategy(
+                        strategyType.name(), strategy, this::calculateRangeResidual));
+        updateActiveStrategy();
+    }
+
+    /**
+     * Set a chain of strategies to use. Every strategy is only used when all the strategies before it
+     * couldn't estimate a pose. The first strategy of the chain becomes the primary strategy.
+     *
+     * <p>Note: Setting the primary or the multi-tag fallback strategy will reset the chain to the
+     * primary strategy, followed by the fallback strategy if the primary strategy is a multi-tag one.
+     *
+     * @param strategyChain the strategies, in the order they should be tried
+     */
+    public void setStrategyChain(PoseStrategy... strategyChain) {
+        checkUpdate(Arrays.asList(this.strategyChain), Arrays.asList(strategyChain));
+        this.strategyChain = strategyChain;
+        this.primaryStrategy = strategyChain[0];
+        updateActiveStrategy();
+    }
+
+    private void registerStrategies() {
+        registerStrategy(
+                PoseStrategy.LOWEST_AMBIGUITY, (result, cameraMatrix, distCoeffs) -> lowestAmbiguityStrategy(result));
+        registerStrategy(
+                PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT,
+                (result, cameraMatrix, distCoeffs) -> closestToCameraHeightStrategy(result));
+        registerStrategy(
+                PoseStrategy.CLOSEST_TO_REFERENCE_POSE,
+                (result, cameraMatrix, distCoeffs) -> closestToReferencePoseStrategy(result, referencePose));
+        registerStrategy(
+                PoseStrategy.CLOSEST_TO_LAST_POSE,
+                (result, cameraMatrix, distCoeffs) -> {
+                    setReferencePose(lastPose);
+                    return closestToReferencePoseStrategy(result, referencePose);
+                });
+        registerStrategy(
+                PoseStrategy.AVERAGE_BEST_TARGETS,
+                (result, cameraMatrix, distCoeffs) -> averageBestTargetsStrategy(result));
+        registerStrategy(PoseStrategy.MULTI_TAG_PNP_ON_RIO, this::multiTagOnRioStrategy);
+        registerStrategy(PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, this::multiTagOnCoprocStrategy);
+        registerStrategy(
+                PoseStrategy.CLOSEST_TO_HEADING, (result, cameraMatrix, distCoeffs) -> closestToHeadingStrategy(result));
+        registerStrategy(
+                PoseStrategy.HEADING_CONSTRAINED_TRIANGULATION,
+                (result, cameraMatrix, distCoeffs) -> headingConstrainedTriangulationStrategy(result));
+    }
+
+    private PoseStrategy[] createDefaultStrategyChain() {
+        if (primaryStrategy == PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR
+                || primaryStrategy == PoseStrategy.MULTI_TAG_PNP_ON_RIO)
+            return new PoseStrategy[] {primaryStrategy, multiTagFallbackStrategy};
+        return new PoseStrategy[] {primaryStrategy};
+    }
+
+    private void updateActiveStrategy() {
+        // Strategies are registered one by one in the constructor, so the chain may not exist yet
+        if (strategyChain == null) return;
+
+        PoseEstimationStrategy chainedFallbackStrategy = null;
+        for (int i = 1; i < strategyChain.length; i++) {
+            PoseEstimationStrategy currentStrategy = registeredStrategies.get(strategyChain[i]);
+            chainedFallbackStrategy =
+                    chainedFallbackStrategy == null
+                            ? currentStrategy
+                            : chainedFallbackStrategy.orElse(currentStrategy);
+        }
+        fallbackChainStrategy = chainedFallbackStrategy;
+
+        PoseEstimationStrategy primaryStrategyImplementation =
+                registeredStrategies.get(strategyChain[0]);
+        activeStrategy =
+                chainedFallbackStrategy == null
+                        ? primaryStrategyImplementation
+                        : primaryStrategyImplementation.orElse(chainedFallbackStrategy);
+    }
+
     private Optional<EstimatedRobotPose> closestToHeadingStrategy(PhotonPipelineResult result) {
         double smallestAngleDifferenceRadians = -1;
-        EstimatedRobotPose closestAngleTarget = null;
-        double currentHeadingRadians = Swerve.getInstance().getHeading().getRadians();
+        PhotonTrackedTarget closestAngleTarget = null;
+        boolean isClosestAngleAlternate = false;
+        double headingAtCaptureRadians =
+                Swerve.getInstance().getHeadingAt(result.getTimestampSeconds()).getRadians();
 
         for (PhotonTrackedTarget target : result.targets) {
             int targetFiducialId = target.getFiducialId();
@@ -428,59 +625,130 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(targetFiducialId);
 
-            if (targetPosition.isEmpty()) {
-                reportFiducialPoseError(target.getFiducialId());
+            if (targetPosition == null) {
+                reportFiducialPoseError(targetFiducialId);
                 continue;
             }
 
-            double alternateTransformDelta =
-                    Math.abs(
-                            currentHeadingRadians -
-                                    targetPosition
-                                    .get()
-                                    .transformBy(target.getAlternateCameraToTarget().inverse())
-                                    .getRotation()
-                                    .getZ());
-            double bestTransformDelta =
-                    Math.abs(
-                            currentHeadingRadians
-                                    - targetPosition
-                                    .get()
-                                    .transformBy(target.getBestCameraToTarget().inverse())
-                                    .getRotation()
-                                    .getZ());
+            calculateCandidateCameraPose(targetPosition, target.getAlternateCameraToTarget());
+            double alternateTransformDelta = Math.abs(MathUtil.angleModulus(headingAtCaptureRadians - getCandidateCameraYaw()));
+            calculateCandidateCameraPose(targetPosition, target.getBestCameraToTarget());
+            double bestTransformDelta = Math.abs(MathUtil.angleModulus(headingAtCaptureRadians - getCandidateCameraYaw()));
 
             if ((smallestAngleDifferenceRadians == -1 || alternateTransformDelta < smallestAngleDifferenceRadians) && target.getAlternateCameraToTarget().getRotation().getZ() != 0) {
                 smallestAngleDifferenceRadians = alternateTransformDelta;
-                closestAngleTarget =
-                        new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getAlternateCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PhotonPoseEstimator.PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
+                closestAngleTarget = target;
+                isClosestAngleAlternate = true;
             }
 
             if (smallestAngleDifferenceRadians == -1 || bestTransformDelta < smallestAngleDifferenceRadians) {
                 smallestAngleDifferenceRadians = bestTransformDelta;
-                closestAngleTarget =
-                        new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PhotonPoseEstimator.PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
+                closestAngleTarget = target;
+                isClosestAngleAlternate = false;
             }
         }
 
         // Need to null check here in case none of the provided targets are fiducial.
-        return Optional.ofNullable(closestAngleTarget);
+        if (closestAngleTarget == null) return Optional.empty();
+
+        return Optional.of(
+                createEstimatedRobotPose(
+                        result, closestAngleTarget, isClosestAngleAlternate, PoseStrategy.CLOSEST_TO_HEADING));
+    }
+
+    /**
+     * Return the estimated position of the robot by triangulating every visible tag, using the
+     * current gyro heading as the robot's rotation.
+     *
+     * <p>For every tag, the camera's ray to the tag is rotated to the field frame using the heading,
+     * and is scaled so its height matches the tag's known height. This gives the robot's translation
+     * in closed form. The range along the ray is sensitive to the ray's elevation, while the lateral
+     * error grows with the distance, so every solution is weighted by its own 2x2 information matrix
+     * before they're fused.
+     *
+     * @param result pipeline result
+     * @return the estimated position of the robot in the FCS and the estimated timestamp of this
+     *     estimation.
+     */
+    private Optional<EstimatedRobotPose> headingConstrainedTriangulationStrategy(
+            PhotonPipelineResult result) {
+        double headingRadians =
+                Swerve.getInstance().getHeadingAt(result.getTimestampSeconds()).getRadians();
+        double headingCos = Math.cos(headingRadians), headingSin = Math.sin(headingRadians);
+        double cameraFieldX = headingCos * robotToCamera.getX() - headingSin * robotToCamera.getY(),
+                cameraFieldY = headingSin * robotToCamera.getX() + headingCos * robotToCamera.getY();
+        double informationXX = 0, informationXY = 0, informationYY = 0;
+        double weightedSumX = 0, weightedSumY = 0;
+
+        for (PhotonTrackedTarget target : result.targets) {
+            int targetFiducialId = target.getFiducialId();
+
+            // Don't report errors for non-fiducial targets. This could also be resolved by
+            // adding -1 to
+            // the initial HashSet.
+            if (targetFiducialId == -1) continue;
+
+            Pose3d targetPosition = getTagPose(targetFiducialId);
+
+            if (targetPosition == null) {
+                reportFiducialPoseError(targetFiducialId);
+                continue;
+            }
+
+            // PhotonVision's yaw is positive to the right, while the camera frame's y axis is positive
+            // to the left.
+            double yawRadians = -Math.toRadians(target.getYaw()),
+                    pitchRadians = Math.toRadians(target.getPitch());
+            rotateVector(
+                    robotToCameraQuaternion,
+                    Math.cos(pitchRadians) * Math.cos(yawRadians),
+                    Math.cos(pitchRadians) * Math.sin(yawRadians),
+                    Math.sin(pitchRadians),
+                    rotatedVector);
+
+            double rayFieldX = headingCos * rotatedVector[0] - headingSin * rotatedVector[1],
+                    rayFieldY = headingSin * rotatedVector[0] + headingCos * rotatedVector[1],
+                    rayFieldZ = rotatedVector[2];
+            if (Math.abs(rayFieldZ) < MINIMUM_TAG_ELEVATION_SINE) continue;
+
+            double rayLength = (targetPosition.getZ() - robotToCamera.getZ()) / rayFieldZ;
+            double horizontalRayNorm = Math.hypot(rayFieldX, rayFieldY);
+            if (rayLength <= 0 || horizontalRayNorm < 1e-9) continue;
+
+            double robotX = targetPosition.getX() - rayLength * rayFieldX - cameraFieldX,
+                    robotY = targetPosition.getY() - rayLength * rayFieldY - cameraFieldY;
+
+            double alongRayX = rayFieldX / horizontalRayNorm, alongRayY = rayFieldY / horizontalRayNorm;
+            double rangeVariance = rayLength * rayLength / (rayFieldZ * rayFieldZ),
+                    horizontalDistance = rayLength * horizontalRayNorm,
+                    lateralVariance = horizontalDistance * horizontalDistance;
+            double tagInformationXX =
+                            alongRayX * alongRayX / rangeVariance + alongRayY * alongRayY / lateralVariance,
+                    tagInformationXY = alongRayX * alongRayY * (1 / rangeVariance - 1 / lateralVariance),
+                    tagInformationYY =
+                            alongRayY * alongRayY / rangeVariance + alongRayX * alongRayX / lateralVariance;
+
+            informationXX += tagInformationXX;
+            informationXY += tagInformationXY;
+            informationYY += tagInformationYY;
+            weightedSumX += tagInformationXX * robotX + tagInformationXY * robotY;
+            weightedSumY += tagInformationXY * robotX + tagInformationYY * robotY;
+        }
+
+        double determinant = informationXX * informationYY - informationXY * informationXY;
+        if (determinant <= 0) return Optional.empty();
+
+        double estimatedX = (informationYY * weightedSumX - informationXY * weightedSumY) / determinant,
+                estimatedY = (informationXX * weightedSumY - informationXY * weightedSumX) / determinant;
+
+        return Optional.of(
+                new EstimatedRobotPose(
+                        new Pose3d(estimatedX, estimatedY, 0, new Rotation3d(0, 0, headingRadians)),
+                        result.getTimestampSeconds(),
+                        result.getTargets(),
+                        PoseStrategy.HEADING_CONSTRAINED_TRIANGULATION));
     }
 
     private Optional<EstimatedRobotPose> multiTagOnCoprocStrategy(
@@ -493,7 +761,7 @@ public class PhotonPoseEstimator {
                     new Pose3d()
                             .plus(best_tf) // field-to-camera
                             .relativeTo(fieldTags.getOrigin())
-                            .plus(robotToCamera.inverse()); // field-to-robot
+                            .plus(cameraToRobot); // field-to-robot
             return Optional.of(
                     new EstimatedRobotPose(
                             best,
@@ -501,7 +769,7 @@ public class PhotonPoseEstimator {
                             result.getTargets(),
                             PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR));
         } else {
-            return update(result, cameraMatrixOpt, distCoeffsOpt, this.multiTagFallbackStrategy);
+            return Optional.empty();
         }
     }
 
@@ -509,22 +777,20 @@ public class PhotonPoseEstimator {
             PhotonPipelineResult result,
             Optional<Matrix<N3, N3>> cameraMatrixOpt,
             Optional<Matrix<N5, N1>> distCoeffsOpt) {
-        boolean hasCalibData = cameraMatrixOpt.isPresent() && distCoeffsOpt.isPresent();
-        // cannot run multitagPNP, use fallback strategy
-        if (!hasCalibData || result.getTargets().size() < 2) {
-            return update(result, cameraMatrixOpt, distCoeffsOpt, this.multiTagFallbackStrategy);
+        // cannot run multitagPNP, let the fallback strategy run
+        if (!canRunMultiTagOnRio(result, cameraMatrixOpt, distCoeffsOpt)) {
+            return Optional.empty();
         }
 
         var pnpResult =
                 VisionEstimation.estimateCamPosePNP(
                         cameraMatrixOpt.get(), distCoeffsOpt.get(), result.getTargets(), fieldTags, tagModel);
-        // try fallback strategy if solvePNP fails for some reason
-        if (!pnpResult.isPresent)
-            return update(result, cameraMatrixOpt, distCoeffsOpt, this.multiTagFallbackStrategy);
+        // let the fallback strategy run if solvePNP fails for some reason
+        if (!pnpResult.isPresent) return Optional.empty();
         var best =
                 new Pose3d()
                         .plus(pnpResult.best) // field-to-camera
-                        .plus(robotToCamera.inverse()); // field-to-robot
+                        .plus(cameraToRobot); // field-to-robot
 
         return Optional.of(
                 new EstimatedRobotPose(
@@ -534,6 +800,14 @@ public class PhotonPoseEstimator {
                         PoseStrategy.MULTI_TAG_PNP_ON_RIO));
     }
 
+    private static boolean canRunMultiTagOnRio(
+            PhotonPipelineResult result,
+            Optional<Matrix<N3, N3>> cameraMatrixOpt,
+            Optional<Matrix<N5, N1>> distCoeffsOpt) {
+        boolean hasCalibData = cameraMatrixOpt.isPresent() && distCoeffsOpt.isPresent();
+        return hasCalibData && result.getTargets().size() >= 2;
+    }
+
     /**
      * Return the estimated position of the robot with the lowest position ambiguity from a List of
      * pipeline results.
@@ -562,9 +836,9 @@ public class PhotonPoseEstimator {
 
         int targetFiducialId = lowestAmbiguityTarget.getFiducialId();
 
-        Optional<Pose3d> targetPosition = fieldTags.getTagPose(targetFiducialId);
+        Pose3d targetPosition = getTagPose(targetFiducialId);
 
-        if (targetPosition.isEmpty()) {
+        if (targetPosition == null) {
             reportFiducialPoseError(targetFiducialId);
             return Optional.empty();
         }
@@ -572,9 +846,8 @@ public class PhotonPoseEstimator {
         return Optional.of(
                 new EstimatedRobotPose(
                         targetPosition
-                                .get()
                                 .transformBy(lowestAmbiguityTarget.getBestCameraToTarget().inverse())
-                                .transformBy(robotToCamera.inverse()),
+                                .transformBy(cameraToRobot),
                         result.getTimestampSeconds(),
                         result.getTargets(),
                         PoseStrategy.LOWEST_AMBIGUITY));
@@ -590,7 +863,8 @@ public class PhotonPoseEstimator {
      */
     private Optional<EstimatedRobotPose> closestToCameraHeightStrategy(PhotonPipelineResult result) {
         double smallestHeightDifference = 10e9;
-        EstimatedRobotPose closestHeightTarget = null;
+        PhotonTrackedTarget closestHeightTarget = null;
+        boolean isClosestHeightAlternate = false;
 
         for (PhotonTrackedTarget target : result.targets) {
             int targetFiducialId = target.getFiducialId();
@@ -600,57 +874,37 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(targetFiducialId);
 
-            if (targetPosition.isEmpty()) {
-                reportFiducialPoseError(target.getFiducialId());
+            if (targetPosition == null) {
+                reportFiducialPoseError(targetFiducialId);
                 continue;
             }
 
-            double alternateTransformDelta =
-                    Math.abs(
-                            robotToCamera.getZ()
-                                    - targetPosition
-                                            .get()
-                                            .transformBy(target.getAlternateCameraToTarget().inverse())
-                                            .getZ());
-            double bestTransformDelta =
-                    Math.abs(
-                            robotToCamera.getZ()
-                                    - targetPosition
-                                            .get()
-                                            .transformBy(target.getBestCameraToTarget().inverse())
-                                            .getZ());
+            calculateCandidateCameraPose(targetPosition, target.getAlternateCameraToTarget());
+            double alternateTransformDelta = Math.abs(robotToCamera.getZ() - candidateCameraTranslation[2]);
+            calculateCandidateCameraPose(targetPosition, target.getBestCameraToTarget());
+            double bestTransformDelta = Math.abs(robotToCamera.getZ() - candidateCameraTranslation[2]);
 
             if (alternateTransformDelta < smallestHeightDifference) {
                 smallestHeightDifference = alternateTransformDelta;
-                closestHeightTarget =
-                        new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getAlternateCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
+                closestHeightTarget = target;
+                isClosestHeightAlternate = true;
             }
 
             if (bestTransformDelta < smallestHeightDifference) {
                 smallestHeightDifference = bestTransformDelta;
-                closestHeightTarget =
-                        new EstimatedRobotPose(
-                                targetPosition
-                                        .get()
-                                        .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT);
+                closestHeightTarget = target;
+                isClosestHeightAlternate = false;
             }
         }
 
         // Need to null check here in case none of the provided targets are fiducial.
-        return Optional.ofNullable(closestHeightTarget);
+        if (closestHeightTarget == null) return Optional.empty();
+
+        return Optional.of(
+                createEstimatedRobotPose(
+                        result, closestHeightTarget, isClosestHeightAlternate, PoseStrategy.CLOSEST_TO_CAMERA_HEIGHT));
     }
 
     /**
@@ -672,7 +926,8 @@ public class PhotonPoseEstimator {
         }
 
         double smallestPoseDelta = 10e9;
-        EstimatedRobotPose lowestDeltaPose = null;
+        PhotonTrackedTarget lowestDeltaTarget = null;
+        boolean isLowestDeltaAlternate = false;
 
         for (PhotonTrackedTarget target : result.targets) {
             int targetFiducialId = target.getFiducialId();
@@ -682,47 +937,35 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(targetFiducialId);
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
 
-            Pose3d altTransformPosition =
-                    targetPosition
-                            .get()
-                            .transformBy(target.getAlternateCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
-            Pose3d bestTransformPosition =
-                    targetPosition
-                            .get()
-                            .transformBy(target.getBestCameraToTarget().inverse())
-                            .transformBy(robotToCamera.inverse());
-
-            double altDifference = Math.abs(calculateDifference(referencePose, altTransformPosition));
-            double bestDifference = Math.abs(calculateDifference(referencePose, bestTransformPosition));
+            calculateCandidateRobotPose(targetPosition, target.getAlternateCameraToTarget());
+            double altDifference = calculateCandidateRobotDistance(referencePose);
+            calculateCandidateRobotPose(targetPosition, target.getBestCameraToTarget());
+            double bestDifference = calculateCandidateRobotDistance(referencePose);
 
             if (altDifference < smallestPoseDelta) {
                 smallestPoseDelta = altDifference;
-                lowestDeltaPose =
-                        new EstimatedRobotPose(
-                                altTransformPosition,
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PoseStrategy.CLOSEST_TO_REFERENCE_POSE);
+                lowestDeltaTarget = target;
+                isLowestDeltaAlternate = true;
             }
             if (bestDifference < smallestPoseDelta) {
                 smallestPoseDelta = bestDifference;
-                lowestDeltaPose =
-                        new EstimatedRobotPose(
-                                bestTransformPosition,
-                                result.getTimestampSeconds(),
-                                result.getTargets(),
-                                PoseStrategy.CLOSEST_TO_REFERENCE_POSE);
+                lowestDeltaTarget = target;
+                isLowestDeltaAlternate = false;
             }
         }
-        return Optional.ofNullable(lowestDeltaPose);
+
+        if (lowestDeltaTarget == null) return Optional.empty();
+
+        return Optional.of(
+                createEstimatedRobotPose(
+                        result, lowestDeltaTarget, isLowestDeltaAlternate, PoseStrategy.CLOSEST_TO_REFERENCE_POSE));
     }
 
     /**
@@ -744,9 +987,9 @@ public class PhotonPoseEstimator {
             // the initial HashSet.
             if (targetFiducialId == -1) continue;
 
-            Optional<Pose3d> targetPosition = fieldTags.getTagPose(target.getFiducialId());
+            Pose3d targetPosition = getTagPose(targetFiducialId);
 
-            if (targetPosition.isEmpty()) {
+            if (targetPosition == null) {
                 reportFiducialPoseError(targetFiducialId);
                 continue;
             }
@@ -758,9 +1001,8 @@ public class PhotonPoseEstimator {
                 return Optional.of(
                         new EstimatedRobotPose(
                                 targetPosition
-                                        .get()
                                         .transformBy(target.getBestCameraToTarget().inverse())
-                                        .transformBy(robotToCamera.inverse()),
+                                        .transformBy(cameraToRobot),
                                 result.getTimestampSeconds(),
                                 result.getTargets(),
                                 PoseStrategy.AVERAGE_BEST_TARGETS));
@@ -772,9 +1014,8 @@ public class PhotonPoseEstimator {
                     new Pair<>(
                             target,
                             targetPosition
-                                    .get()
                                     .transformBy(target.getBestCameraToTarget().inverse())
-                                    .transformBy(robotToCamera.inverse())));
+                                    .transformBy(cameraToRobot)));
         }
 
         // Take the average
@@ -802,12 +1043,176 @@ public class PhotonPoseEstimator {
     }
 
     /**
-     * Difference is defined as the vector magnitude between the two poses
+     * Creates the estimated robot pose of the winning candidate of a strategy. This should only be
+     * called once per strategy, for the final winner.
+     *
+     * @param result pipeline result
+     * @param target the winning target
+     * @param useAlternate whether the alternate camera to target transform won, rather than the best
+     * @param strategy the strategy that chose the target
+     * @return the estimated robot pose
+     */
+    private EstimatedRobotPose createEstimatedRobotPose(
+            PhotonPipelineResult result,
+            PhotonTrackedTarget target,
+            boolean useAlternate,
+            PoseStrategy strategy) {
+        Transform3d cameraToTarget =
+                useAlternate ? target.getAlternateCameraToTarget() : target.getBestCameraToTarget();
+
+        return new EstimatedRobotPose(
+                getTagPose(target.getFiducialId())
+                        .transformBy(cameraToTarget.inverse())
+                        .transformBy(cameraToRobot),
+                result.getTimestampSeconds(),
+                result.getTargets(),
+                strategy);
+    }
+
+    /**
+     * Calculates the field to camera pose of a candidate, which is the tag's pose transformed by the
+     * inverse of the camera to target transform. This uses primitive quaternion math, and stores the
+     * result in the candidate camera arrays, so no objects are created.
+     *
+     * @param tagPose the pose of the tag
+     * @param cameraToTarget the candidate camera to target transform
+     */
+    private void calculateCandidateCameraPose(Pose3d tagPose, Transform3d cameraToTarget) {
+        Quaternion tagRotation = tagPose.getRotation().getQuaternion();
+        Quaternion cameraToTargetRotation = cameraToTarget.getRotation().getQuaternion();
+
+        multiplyByConjugate(
+                tagRotation.getW(), tagRotation.getX(), tagRotation.getY(), tagRotation.getZ(),
+                cameraToTargetRotation, candidateCameraQuaternion);
+        rotateVector(
+                candidateCameraQuaternion,
+                cameraToTarget.getX(), cameraToTarget.getY(), cameraToTarget.getZ(),
+                rotatedVector);
+
+        candidateCameraTranslation[0] = tagPose.getX() - rotatedVector[0];
+        candidateCameraTranslation[1] = tagPose.getY() - rotatedVector[1];
+        candidateCameraTranslation[2] = tagPose.getZ() - rotatedVector[2];
+    }
+
+    /**
+     * Calculates the field to robot pose of a candidate, which is the candidate's camera pose
+     * transformed by the inverse of the robot to camera transform. The result is stored in the
+     * candidate robot arrays.
      *
-     * @return The absolute "difference" (>=0) between two Pose3ds.
+     * @param tagPose the pose of the tag
+     * @param cameraToTarget the candidate camera to target transform
      */
-    private double calculateDifference(Pose3d x, Pose3d y) {
-        return x.getTranslation().getDistance(y.getTranslation());
+    private void calculateCandidateRobotPose(Pose3d tagPose, Transform3d cameraToTarget) {
+        calculateCandidateCameraPose(tagPose, cameraToTarget);
+
+        multiplyByConjugate(
+                candidateCameraQuaternion[0], candidateCameraQuaternion[1],
+                candidateCameraQuaternion[2], candidateCameraQuaternion[3],
+                robotToCamera.getRotation().getQuaternion(), candidateRobotQuaternion);
+        rotateVector(
+                candidateRobotQuaternion,
+                robotToCamera.getX(), robotToCamera.getY(), robotToCamera.getZ(),
+                rotatedVector);
+
+        candidateRobotTranslation[0] = candidateCameraTranslation[0] - rotatedVector[0];
+        candidateRobotTranslation[1] = candidateCameraTranslation[1] - rotatedVector[1];
+        candidateRobotTranslation[2] = candidateCameraTranslation[2] - rotatedVector[2];
+    }
+
+    /**
+     * @return the yaw of the candidate camera pose, the same as {@link Rotation3d#getZ()}
+     */
+    private double getCandidateCameraYaw() {
+        double w = candidateCameraQuaternion[0],
+                x = candidateCameraQuaternion[1],
+                y = candidateCameraQuaternion[2],
+                z = candidateCameraQuaternion[3];
+
+        return Math.atan2(2.0 * (w * z + x * y), 1.0 - 2.0 * (y * y + z * z));
+    }
+
+    /**
+     * Difference is defined as the vector magnitude between the candidate robot pose and the given
+     * pose.
+     *
+     * @return The absolute "difference" (>=0) between the candidate and the pose.
+     */
+    private double calculateCandidateRobotDistance(Pose3d pose) {
+        double xDifference = candidateRobotTranslation[0] - pose.getX(),
+                yDifference = candidateRobotTranslation[1] - pose.getY(),
+                zDifference = candidateRobotTranslation[2] - pose.getZ();
+
+        return Math.sqrt(
+                xDifference * xDifference + yDifference * yDifference + zDifference * zDifference);
+    }
+
+    /**
+     * Multiplies a quaternion by the conjugate of another, which is the same as
+     * {@code first.times(second.inverse())} for unit quaternions.
+     */
+    private static void multiplyByConjugate(
+            double firstW, double firstX, double firstY, double firstZ,
+            Quaternion second, double[] output) {
+        double secondW = second.getW(),
+                secondX = -second.getX(),
+                secondY = -second.getY(),
+                secondZ = -second.getZ();
+
+        output[0] = firstW * secondW - firstX * secondX - firstY * secondY - firstZ * secondZ;
+        output[1] = firstW * secondX + firstX * secondW + firstY * secondZ - firstZ * secondY;
+        output[2] = firstW * secondY - firstX * secondZ + firstY * secondW + firstZ * secondX;
+        output[3] = firstW * secondZ + firstX * secondY - firstY * secondX + firstZ * secondW;
+    }
+
+    /** Rotates a vector by a unit quaternion, the same as {@link Translation3d#rotateBy(Rotation3d)}. */
+    private static void rotateVector(
+            double[] quaternion, double x, double y, double z, double[] output) {
+        double w = quaternion[0], qx = quaternion[1], qy = quaternion[2], qz = quaternion[3];
+        double tx = 2 * (qy * z - qz * y),
+                ty = 2 * (qz * x - qx * z),
+                tz = 2 * (qx * y - qy * x);
+
+        output[0] = x + w * tx + (qy * tz - qz * ty);
+        output[1] = y + w * ty + (qz * tx - qx * tz);
+        output[2] = z + w * tz + (qx * ty - qy * tx);
+    }
+
+    /**
+     * Calculates the average difference between the measured distance to every used tag, and the
+     * distance from the estimated camera pose to the tag.
+     *
+     * @param estimatedRobotPose the estimate
+     * @return the average range residual, in meters
+     */
+    private double calculateRangeResidual(EstimatedRobotPose estimatedRobotPose) {
+        Pose3d estimatedCameraPose = estimatedRobotPose.estimatedPose.transformBy(robotToCamera);
+        double residualSum = 0;
+        int usedTargetsCount = 0;
+
+        for (PhotonTrackedTarget target : estimatedRobotPose.targetsUsed) {
+            Pose3d targetPosition = getTagPose(target.getFiducialId());
+            if (targetPosition == null) continue;
+
+            double estimatedDistance =
+                    estimatedCameraPose.getTranslation().getDistance(targetPosition.getTranslation());
+            double measuredDistance = target.getBestCameraToTarget().getTranslation().getNorm();
+            residualSum += Math.abs(estimatedDistance - measuredDistance);
+            usedTargetsCount++;
+        }
+
+        return usedTargetsCount == 0 ? 0 : residualSum / usedTargetsCount;
+    }
+
+    private void updateRobotToCameraQuaternion() {
+        Quaternion quaternion = robotToCamera.getRotation().getQuaternion();
+        robotToCameraQuaternion[0] = quaternion.getW();
+        robotToCameraQuaternion[1] = quaternion.getX();
+        robotToCameraQuaternion[2] = quaternion.getY();
+        robotToCameraQuaternion[3] = quaternion.getZ();
+    }
+
+    private Pose3d getTagPose(int fiducialId) {
+        return fieldTagsCache.getTagPose(fiducialId);
     }
 
     private void reportFiducialPoseError(int fiducialId) {
@@ -0,0 +1,41 @@
+package frc.trigon.robot.poseestimation.photonposeestimator;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.numbers.N5;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import java.util.Optional;
+
+/**
+ * A strategy that estimates the robot's pose from a single pipeline result.
+ * Strategies can be composed into fallback chains using {@link #orElse(PoseEstimationStrategy)}.
+ */
+@FunctionalInterface
+public interface PoseEstimationStrategy {
+    /**
+     * Estimates the robot's pose from a pipeline result.
+     *
+     * @param result       the pipeline result, which is guaranteed to have targets
+     * @param cameraMatrix the camera's calibration matrix, if it's known
+     * @param distCoeffs   the camera's distortion coefficients, if they're known
+     * @return the estimated pose, or an empty optional if the strategy can't estimate a pose from the result
+     */
+    Optional<EstimatedRobotPose> estimate(PhotonPipelineResult result, Optional<Matrix<N3, N3>> cameraMatrix, Optional<Matrix<N5, N1>> distCoeffs);
+
+    /**
+     * Creates a strategy that uses this strategy, and falls back to the given strategy when this strategy can't estimate a pose.
+     *
+     * @param fallbackStrategy the strategy to fall back to
+     * @return the composed strategy
+     */
+    default PoseEstimationStrategy orElse(PoseEstimationStrategy fallbackStrategy) {
+        return (result, cameraMatrix, distCoeffs) -> {
+            final Optional<EstimatedRobotPose> estimatedPose = estimate(result, cameraMatrix, distCoeffs);
+            if (estimatedPose.isPresent())
+                return estimatedPose;
+            return fallbackStrategy.estimate(result, cameraMatrix, distCoeffs);
+        };
+    }
+}
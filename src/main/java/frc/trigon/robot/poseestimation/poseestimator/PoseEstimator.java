@@ -1,26 +1,31 @@
 package frc.trigon.robot.poseestimation.poseestimator;
 
-import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.numbers.N1;
-import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.trigon.robot.poseestimation.robotposesources.RobotPoseSource;
-import frc.trigon.robot.poseestimation.robotposesources.RobotPoseSourceConstants;
 import frc.trigon.robot.subsystems.swerve.Swerve;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometrySample;
 import frc.trigon.robot.utilities.AllianceUtilities;
+import frc.trigon.robot.utilities.AprilTagLayoutCache;
 import org.littletonrobotics.junction.Logger;
 
-import java.util.HashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A class that estimates the robot's pose using a {@link SwerveDrivePoseEstimator}, and robot pose sources.
  * This pose estimator will provide you the robot's pose relative to the current driver station.
+ * The estimator's state is only modified by the estimator's thread. Its output is published as an immutable {@link RobotPoseSnapshot},
+ * and pose resets from other threads are handed to the estimator's thread through a queue.
  *
  * @author Shriqui - Captain, Omer - Programing Captain
  */
@@ -30,7 +35,17 @@ public class PoseEstimator implements AutoCloseable {
     private final SwerveDrivePoseEstimator swerveDrivePoseEstimator;
     private final Field2d field = new Field2d();
     private final RobotPoseSource[] robotPoseSources;
-    private AllianceUtilities.AlliancePose2d robotPose = PoseEstimatorConstants.DEFAULT_POSE;
+    private final VisionMeasurementBatcher visionMeasurementBatcher;
+    private final int[] rejectedVisionMeasurements, consecutiveVisionRejections;
+    private final Pose2d[] lastRejectedVisionMeasurements;
+    private final PoseHistory poseHistory = new PoseHistory(PoseEstimatorConstants.POSE_HISTORY_CAPACITY);
+    private final Queue<Pose2d> resetPoseRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<RobotPoseSnapshot> latestSnapshot = new AtomicReference<>(
+            new RobotPoseSnapshot(PoseEstimatorConstants.DEFAULT_POSE, new ChassisSpeeds(), 0, 0)
+    );
+    private double lastOdometrySampleTimestamp = 0;
+    private SwerveOdometrySample previousOdometrySample = null;
+    private AprilTagLayoutCache displayedLayoutCache = null;
 
     /**
      * Constructs a new PoseEstimator.
@@ -39,6 +54,10 @@ public class PoseEstimator implements AutoCloseable {
      */
     public PoseEstimator(RobotPoseSource... robotPoseSources) {
         this.robotPoseSources = robotPoseSources;
+        visionMeasurementBatcher = new VisionMeasurementBatcher(PoseEstimatorConstants.MAXIMUM_VISION_MEASUREMENTS_PER_UPDATE);
+        rejectedVisionMeasurements = new int[robotPoseSources.length];
+        consecutiveVisionRejections = new int[robotPoseSources.length];
+        lastRejectedVisionMeasurements = new Pose2d[robotPoseSources.length];
         swerveDrivePoseEstimator = new SwerveDrivePoseEstimator(
                 swerve.getConstants().getKinematics(),
                 swerve.getHeading(),
@@ -57,10 +76,14 @@ public class PoseEstimator implements AutoCloseable {
     public void close() {
         field.close();
         periodicNotifier.close();
+        for (RobotPoseSource robotPoseSource : robotPoseSources)
+            robotPoseSource.close();
     }
 
     /**
      * Resets the pose estimator to the given pose, and the gyro to the given pose's heading.
+     * The reset is applied by the estimator's thread in its next update, but the given pose is published immediately,
+     * so callers will read the new pose right after the reset.
      *
      * @param currentPose the pose to reset to, as an {@link AllianceUtilities.AlliancePose2d}
      */
@@ -68,23 +91,107 @@ public class PoseEstimator implements AutoCloseable {
         final Pose2d currentBluePose = currentPose.toBlueAlliancePose();
         swerve.setHeading(currentBluePose.getRotation());
 
-        resetPoseEstimator(currentBluePose);
+        resetPoseRequests.offer(currentBluePose);
+        latestSnapshot.updateAndGet(previousSnapshot -> new RobotPoseSnapshot(currentPose, new ChassisSpeeds(), Timer.getFPGATimestamp(), previousSnapshot.sequenceNumber + 1));
     }
 
     /**
      * @return the estimated pose of the robot, as an {@link AllianceUtilities.AlliancePose2d}
      */
     public AllianceUtilities.AlliancePose2d getCurrentPose() {
-        return robotPose;
+        return latestSnapshot.get().pose;
+    }
+
+    /**
+     * @return the latest snapshot of the pose estimator's output
+     */
+    public RobotPoseSnapshot getLatestSnapshot() {
+        return latestSnapshot.get();
+    }
+
+    /**
+     * Returns the estimated pose of the robot at a past timestamp, interpolated from the pose history.
+     * The history is moved by every vision correction, so it's continuous with {@link #getCurrentPose()}, and can be used for latency compensation.
+     *
+     * @param timestampSeconds the FPGA timestamp, in seconds
+     * @return the pose at the timestamp as an {@link AllianceUtilities.AlliancePose2d}, or null if the timestamp is older than the history
+     */
+    public AllianceUtilities.AlliancePose2d getPoseAt(double timestampSeconds) {
+        final Pose2d pose = poseHistory.getPoseAt(timestampSeconds);
+        if (pose == null)
+            return null;
+        return AllianceUtilities.AlliancePose2d.fromBlueAlliancePose(pose);
+    }
+
+    /**
+     * Returns the velocity of the robot at a past timestamp, interpolated from the pose history.
+     * The velocity of every sample is derived from the difference between the sample's odometry and the previous sample's odometry.
+     *
+     * @param timestampSeconds the FPGA timestamp, in seconds
+     * @return the velocity at the timestamp, relative to the blue alliance's frame of reference, or null if the timestamp is older than the history
+     */
+    public ChassisSpeeds getBlueAllianceVelocityAt(double timestampSeconds) {
+        return poseHistory.getVelocityAt(timestampSeconds);
     }
 
     private void periodic() {
+        final RobotPoseSnapshot previousSnapshot = latestSnapshot.get();
+        applyResetPoseRequests();
         updatePoseEstimator();
-        robotPose = AllianceUtilities.AlliancePose2d.fromBlueAlliancePose(swerveDrivePoseEstimator.getEstimatedPosition());
-        Logger.recordOutput("Poses/Robot/RobotPose", robotPose.toBlueAlliancePose());
+        publishSnapshot(previousSnapshot);
+        putAprilTagsOnFieldWidget();
+    }
+
+    /**
+     * Publishes the current estimated pose as a new snapshot.
+     * If a reset was requested while the estimator was updating, the reset's snapshot is kept, and the reset will be applied in the next update.
+     *
+     * @param previousSnapshot the snapshot that was published when the update started
+     */
+    private void publishSnapshot(RobotPoseSnapshot previousSnapshot) {
+        final Pose2d estimatedPose = swerveDrivePoseEstimator.getEstimatedPosition();
+        final RobotPoseSnapshot snapshot = new RobotPoseSnapshot(
+                AllianceUtilities.AlliancePose2d.fromBlueAlliancePose(estimatedPose),
+                ChassisSpeeds.fromRobotRelativeSpeeds(swerve.getSelfRelativeVelocity(), estimatedPose.getRotation()),
+                lastOdometrySampleTimestamp,
+                previousSnapshot.sequenceNumber + 1
+        );
+
+        if (!latestSnapshot.compareAndSet(previousSnapshot, snapshot))
+            return;
+
+        field.setRobotPose(estimatedPose);
+        Logger.recordOutput("Poses/Robot/RobotPose", estimatedPose);
+    }
+
+    /**
+     * Applies the newest reset request, if there is one.
+     * The odometry samples that were queued before the reset are from before the gyro was reset, so they're discarded.
+     */
+    private void applyResetPoseRequests() {
+        Pose2d resetPose = null;
+        Pose2d currentRequest = resetPoseRequests.poll();
+        while (currentRequest != null) {
+            resetPose = currentRequest;
+            currentRequest = resetPoseRequests.poll();
+        }
+
+        if (resetPose == null)
+            return;
+
+        discardOdometrySamples();
+        resetPoseEstimator(resetPose);
+    }
+
+    private void discardOdometrySamples() {
+        SwerveOdometrySample odometrySample = swerve.pollOdometrySample();
+        while (odometrySample != null)
+            odometrySample = swerve.pollOdometrySample();
     }
 
     private void resetPoseEstimator(Pose2d currentPose) {
+        poseHistory.clear();
+        previousOdometrySample = null;
         swerveDrivePoseEstimator.resetPosition(
                 currentPose.getRotation(),
                 swerve.getModulePositions(),
@@ -95,47 +202,216 @@ public class PoseEstimator implements AutoCloseable {
     private void updatePoseEstimator() {
         updatePoseEstimatorStates();
         attemptToUpdateWithRobotPoseSources();
-        field.setRobotPose(getCurrentPose().toBlueAlliancePose());
     }
 
+    /**
+     * Picks up the latest results of all the robot pose sources, and applies the new ones in a single timestamp ordered batch.
+     * The sources' IO runs on their own worker threads, so this only reads their published results.
+     */
     private void attemptToUpdateWithRobotPoseSources() {
-        for (RobotPoseSource robotPoseSource : robotPoseSources) {
+        for (int i = 0; i < robotPoseSources.length; i++) {
+            final RobotPoseSource robotPoseSource = robotPoseSources[i];
             robotPoseSource.update();
-            if (robotPoseSource.hasNewResult())
-                updateFromPoseSource(robotPoseSource);
+            final boolean hasNewResult = robotPoseSource.hasNewResult();
+            if (robotPoseSource.getQueuedResultsCount() > 0)
+                addQueuedResultsToVisionMeasurementBatch(i);
+            else if (hasNewResult)
+                addLatestResultToVisionMeasurementBatch(i);
+
+            Logger.recordOutput("PoseEstimator/" + robotPoseSource.getName() + "/RejectedMeasurements", rejectedVisionMeasurements[i]);
         }
+
+        applyVisionMeasurementBatch();
     }
 
-    private void updateFromPoseSource(RobotPoseSource robotPoseSource) {
-        final AllianceUtilities.AlliancePose2d robotPose = robotPoseSource.getRobotPose();
-        if (robotPose == null)
-            return;
+    /**
+     * Applies the batch of vision measurements, and moves the pose history by the correction the batch applied to the estimate.
+     * This keeps the history in the corrected frame, so the next measurements are gated against the corrected estimate.
+     */
+    private void applyVisionMeasurementBatch() {
+        final Pose2d poseBeforeCorrection = swerveDrivePoseEstimator.getEstimatedPosition();
+        visionMeasurementBatcher.applyMeasurements(swerveDrivePoseEstimator);
+        final Pose2d poseAfterCorrection = swerveDrivePoseEstimator.getEstimatedPosition();
+        if (!poseAfterCorrection.equals(poseBeforeCorrection))
+            poseHistory.applyCorrection(poseBeforeCorrection, poseAfterCorrection);
+    }
 
-        field.getObject(robotPoseSource.getName()).setPose(robotPose.toBlueAlliancePose());
-        swerveDrivePoseEstimator.addVisionMeasurement(
-                robotPose.toBlueAlliancePose(),
+    private void addLatestResultToVisionMeasurementBatch(int sourceIndex) {
+        final RobotPoseSource robotPoseSource = robotPoseSources[sourceIndex];
+        addToVisionMeasurementBatch(
+                sourceIndex,
+                robotPoseSource.getRobotPose(),
                 robotPoseSource.getLastResultTimestamp(),
-                averageDistanceToStdDevs(robotPoseSource.getAverageDistanceFromTags(), robotPoseSource.getVisibleTags())
+                robotPoseSource.getVisibleTags(),
+                robotPoseSource.getAverageDistanceFromTags()
         );
     }
 
-    private Matrix<N3, N1> averageDistanceToStdDevs(double averageDistance, int visibleTags) {
-        final double translationStd = PoseEstimatorConstants.TRANSLATIONS_STD_EXPONENT * Math.pow(averageDistance, 2) / visibleTags;
-        final double thetaStd = PoseEstimatorConstants.THETA_STD_EXPONENT * Math.pow(averageDistance, 2) / visibleTags;
+    private void addQueuedResultsToVisionMeasurementBatch(int sourceIndex) {
+        final RobotPoseSource robotPoseSource = robotPoseSources[sourceIndex];
 
-        return VecBuilder.fill(translationStd, translationStd, thetaStd);
+        for (int i = 0; i < robotPoseSource.getQueuedResultsCount(); i++) {
+            addToVisionMeasurementBatch(
+                    sourceIndex,
+                    robotPoseSource.getQueuedResultRobotPose(i),
+                    robotPoseSource.getQueuedResultTimestamp(i),
+                    robotPoseSource.getQueuedResultVisibleTags(i),
+                    robotPoseSource.getQueuedResultAverageDistanceFromTags(i)
+            );
+        }
+    }
+
+    private void addToVisionMeasurementBatch(int sourceIndex, AllianceUtilities.AlliancePose2d robotPose, double timestampSeconds, int visibleTags, double averageDistanceFromTags) {
+        if (robotPose == null || visibleTags <= 0)
+            return;
+
+        final Pose2d measuredPose = robotPose.toBlueAlliancePose();
+        final double averageDistanceSquared = Math.pow(averageDistanceFromTags, 2);
+        final double translationStd = PoseEstimatorConstants.TRANSLATIONS_STD_EXPONENT * averageDistanceSquared / visibleTags;
+        final double thetaStd = PoseEstimatorConstants.THETA_STD_EXPONENT * averageDistanceSquared / visibleTags;
+        if (calculateSquaredMahalanobisDistance(measuredPose, timestampSeconds, translationStd, thetaStd) <= PoseEstimatorConstants.VISION_GATING_CHI_SQUARED_THRESHOLD) {
+            consecutiveVisionRejections[sourceIndex] = 0;
+            addVisionMeasurement(sourceIndex, measuredPose, timestampSeconds, translationStd, thetaStd);
+            return;
+        }
+
+        if (!shouldForceRejectedVisionMeasurement(sourceIndex, measuredPose, visibleTags)) {
+            rejectedVisionMeasurements[sourceIndex]++;
+            return;
+        }
+
+        addVisionMeasurement(
+                sourceIndex,
+                measuredPose,
+                timestampSeconds,
+                translationStd * PoseEstimatorConstants.FORCED_VISION_MEASUREMENT_STD_MULTIPLIER,
+                thetaStd * PoseEstimatorConstants.FORCED_VISION_MEASUREMENT_STD_MULTIPLIER
+        );
+    }
+
+    private void addVisionMeasurement(int sourceIndex, Pose2d measuredPose, double timestampSeconds, double translationStd, double thetaStd) {
+        field.getObject(robotPoseSources[sourceIndex].getName()).setPose(measuredPose);
+        visionMeasurementBatcher.addMeasurement(measuredPose, timestampSeconds, translationStd, thetaStd);
+    }
+
+    /**
+     * Counts a measurement that failed the gating, and checks whether it should be applied anyway, so the pose estimator can recover when the estimate itself is wrong.
+     * Rejections are only counted as consecutive while the rejected measurements agree with each other, so a source that sees scattered bad solves is never forced.
+     * Once a source has enough consecutive agreeing rejections, its rejected measurements are forced until one passes the gating again.
+     * A single tag measurement is only forced if another source's rejected measurement agrees with it, since a single tag can consistently flip to its ambiguous solution.
+     *
+     * @param sourceIndex  the index of the measurement's source
+     * @param measuredPose the rejected measurement
+     * @param visibleTags  the amount of tags the measurement was calculated from
+     * @return whether the measurement should be applied anyway
+     */
+    private boolean shouldForceRejectedVisionMeasurement(int sourceIndex, Pose2d measuredPose, int visibleTags) {
+        final Pose2d lastRejectedMeasurement = lastRejectedVisionMeasurements[sourceIndex];
+        lastRejectedVisionMeasurements[sourceIndex] = measuredPose;
+        if (lastRejectedMeasurement == null || consecutiveVisionRejections[sourceIndex] == 0 || !areVisionMeasurementsAgreeing(lastRejectedMeasurement, measuredPose)) {
+            consecutiveVisionRejections[sourceIndex] = 1;
+            return false;
+        }
+
+        consecutiveVisionRejections[sourceIndex]++;
+        if (consecutiveVisionRejections[sourceIndex] <= PoseEstimatorConstants.MAXIMUM_CONSECUTIVE_VISION_REJECTIONS)
+            return false;
+        return visibleTags >= PoseEstimatorConstants.MINIMUM_TAGS_TO_FORCE_ALONE || isAgreedByAnotherRejectingSource(sourceIndex, measuredPose);
+    }
+
+    private boolean isAgreedByAnotherRejectingSource(int sourceIndex, Pose2d measuredPose) {
+        for (int i = 0; i < robotPoseSources.length; i++) {
+            if (i != sourceIndex && consecutiveVisionRejections[i] > 0 && areVisionMeasurementsAgreeing(lastRejectedVisionMeasurements[i], measuredPose))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean areVisionMeasurementsAgreeing(Pose2d firstMeasurement, Pose2d secondMeasurement) {
+        return firstMeasurement.getTranslation().getDistance(secondMeasurement.getTranslation()) <= PoseEstimatorConstants.REJECTED_MEASUREMENTS_AGREEMENT_TRANSLATION_TOLERANCE_METERS &&
+                Math.abs(MathUtil.angleModulus(firstMeasurement.getRotation().getRadians() - secondMeasurement.getRotation().getRadians())) <= PoseEstimatorConstants.REJECTED_MEASUREMENTS_AGREEMENT_THETA_TOLERANCE_RADIANS;
+    }
+
+    /**
+     * Calculates the squared Mahalanobis distance of a vision measurement's innovation, which is the difference between the measurement and the estimated pose at the measurement's timestamp.
+     * The innovation's covariance is the sum of the estimate's assumed covariance and the measurement's covariance, with no correlation between the axes.
+     *
+     * @param measuredPose     the measured pose, relative to the blue alliance driver station's right corner
+     * @param timestampSeconds the timestamp of the measurement
+     * @param translationStd   the standard deviation of the measurement's x and y
+     * @param thetaStd         the standard deviation of the measurement's angle
+     * @return the squared Mahalanobis distance
+     */
+    private double calculateSquaredMahalanobisDistance(Pose2d measuredPose, double timestampSeconds, double translationStd, double thetaStd) {
+        Pose2d estimatedPose = poseHistory.getPoseAt(timestampSeconds);
+        if (estimatedPose == null)
+            estimatedPose = swerveDrivePoseEstimator.getEstimatedPosition();
+
+        final double
+                xInnovation = measuredPose.getX() - estimatedPose.getX(),
+                yInnovation = measuredPose.getY() - estimatedPose.getY(),
+                thetaInnovation = MathUtil.angleModulus(measuredPose.getRotation().getRadians() - estimatedPose.getRotation().getRadians());
+        final double
+                translationVariance = Math.pow(PoseEstimatorConstants.GATING_ESTIMATE_TRANSLATION_STD, 2) + Math.pow(translationStd, 2),
+                thetaVariance = Math.pow(PoseEstimatorConstants.GATING_ESTIMATE_THETA_STD, 2) + Math.pow(thetaStd, 2);
+
+        return (xInnovation * xInnovation + yInnovation * yInnovation) / translationVariance +
+                thetaInnovation * thetaInnovation / thetaVariance;
     }
 
     private void updatePoseEstimatorStates() {
-        swerveDrivePoseEstimator.update(swerve.getHeading(), swerve.getModulePositions());
+        SwerveOdometrySample odometrySample = swerve.pollOdometrySample();
+
+        while (odometrySample != null) {
+            final Pose2d estimatedPose = swerveDrivePoseEstimator.updateWithTime(odometrySample.timestampSeconds, odometrySample.heading, odometrySample.modulePositions);
+            final ChassisSpeeds estimatedVelocity = ChassisSpeeds.fromRobotRelativeSpeeds(calculateSelfRelativeVelocity(previousOdometrySample, odometrySample), estimatedPose.getRotation());
+            poseHistory.addSample(odometrySample.timestampSeconds, estimatedPose, estimatedVelocity);
+            lastOdometrySampleTimestamp = odometrySample.timestampSeconds;
+            previousOdometrySample = odometrySample;
+            odometrySample = swerve.pollOdometrySample();
+        }
+    }
+
+    /**
+     * Calculates the robot's self relative velocity between two odometry samples, from the change in the module positions and the heading.
+     *
+     * @param previousSample the previous sample, or null if there is none
+     * @param currentSample  the current sample
+     * @return the velocity, or the swerve's current velocity if there is no previous sample to derive the velocity from
+     */
+    private ChassisSpeeds calculateSelfRelativeVelocity(SwerveOdometrySample previousSample, SwerveOdometrySample currentSample) {
+        if (previousSample == null)
+            return swerve.getSelfRelativeVelocity();
+
+        final double timeDifference = currentSample.timestampSeconds - previousSample.timestampSeconds;
+        if (timeDifference <= 0)
+            return swerve.getSelfRelativeVelocity();
+
+        final Twist2d twist = swerve.getConstants().getKinematics().toTwist2d(previousSample.modulePositions, currentSample.modulePositions);
+        final double headingDifference = MathUtil.angleModulus(currentSample.heading.getRadians() - previousSample.heading.getRadians());
+        return new ChassisSpeeds(twist.dx / timeDifference, twist.dy / timeDifference, headingDifference / timeDifference);
     }
 
+    /**
+     * Puts the tags of the current layout on the field widget, if the layout changed since the tags were last put.
+     */
     private void putAprilTagsOnFieldWidget() {
-        final HashMap<Integer, Pose3d> tagsIdToPose = RobotPoseSourceConstants.TAG_ID_TO_POSE;
+        final AprilTagLayoutCache currentLayoutCache = AprilTagLayoutCache.getCurrent();
+        if (currentLayoutCache == displayedLayoutCache)
+            return;
+
+        if (displayedLayoutCache != null) {
+            for (int i = 0; i < displayedLayoutCache.getTagCount(); i++) {
+                final int currentID = displayedLayoutCache.getTagId(i);
+                if (!currentLayoutCache.hasTag(currentID))
+                    field.getObject("Tag " + currentID).setPoses();
+            }
+        }
 
-        for (Integer currentID : tagsIdToPose.keySet()) {
-            final Pose2d tagPose = tagsIdToPose.get(currentID).toPose2d();
-            field.getObject("Tag " + currentID).setPose(tagPose);
+        for (int i = 0; i < currentLayoutCache.getTagCount(); i++) {
+            final int currentID = currentLayoutCache.getTagId(i);
+            field.getObject("Tag " + currentID).setPose(currentLayoutCache.getTagPose2d(currentID));
         }
+        displayedLayoutCache = currentLayoutCache;
     }
 }
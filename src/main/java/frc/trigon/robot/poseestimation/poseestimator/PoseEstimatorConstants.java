@@ -5,6 +5,7 @@ import edu.wpi.first.math.Vector;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.numbers.N3;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
 import frc.trigon.robot.utilities.AllianceUtilities;
 
 public class PoseEstimatorConstants {
@@ -20,5 +21,42 @@ public class PoseEstimatorConstants {
             THETA_STD_EXPONENT = 0.01;
     static final AllianceUtilities.AlliancePose2d DEFAULT_POSE = AllianceUtilities.AlliancePose2d.fromBlueAlliancePose(new Pose2d(5, 5, new Rotation2d()));
     static final double POSE_ESTIMATOR_UPDATE_RATE = 0.02;
+    /**
+     * Vision measurements whose timestamps are closer than this are considered to be from the same time, and are merged.
+     */
+    static final double SAME_TIMESTAMP_TOLERANCE_SECONDS = 0.001;
+    static final int MAXIMUM_VISION_MEASUREMENTS_PER_UPDATE = 64;
+    /**
+     * The squared Mahalanobis distance above which a vision measurement is rejected.
+     * This is the chi-squared value for 3 degrees of freedom (x, y and theta) at 99.9%.
+     */
+    static final double VISION_GATING_CHI_SQUARED_THRESHOLD = 16.27;
+    /**
+     * The assumed standard deviations of the current estimate, used to calculate the innovation's covariance when gating vision measurements.
+     */
+    static final double
+            GATING_ESTIMATE_TRANSLATION_STD = 0.15,
+            GATING_ESTIMATE_THETA_STD = 0.1;
+    /**
+     * After this many consecutive rejections from the same source that agree with each other, its next measurements are accepted anyway,
+     * so the pose estimator can recover when the estimate itself is wrong.
+     */
+    static final int MAXIMUM_CONSECUTIVE_VISION_REJECTIONS = 10;
+    /**
+     * The minimum amount of tags a rejected measurement needs to be forced without another source agreeing with it.
+     */
+    static final int MINIMUM_TAGS_TO_FORCE_ALONE = 2;
+    /**
+     * The maximum difference between two consecutive rejected measurements of the same source, for them to be considered as agreeing.
+     */
+    static final double
+            REJECTED_MEASUREMENTS_AGREEMENT_TRANSLATION_TOLERANCE_METERS = 0.3,
+            REJECTED_MEASUREMENTS_AGREEMENT_THETA_TOLERANCE_RADIANS = 0.15;
+    /**
+     * The standard deviations of a rejected measurement that is accepted anyway are multiplied by this, so it only pulls the pose gradually.
+     */
+    static final double FORCED_VISION_MEASUREMENT_STD_MULTIPLIER = 10;
+    private static final double POSE_HISTORY_DURATION_SECONDS = 2;
+    static final int POSE_HISTORY_CAPACITY = (int) (POSE_HISTORY_DURATION_SECONDS * SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
 }
 
@@ -0,0 +1,174 @@
+package frc.trigon.robot.poseestimation.poseestimator;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * A bounded history of the robot's pose and velocity, ordered by timestamp.
+ * The history is stored in preallocated primitive arrays, and looked up with a binary search, so a lookup is O(log n).
+ * Poses and velocities between two samples are linearly interpolated.
+ * All the values are relative to the blue alliance driver station's right corner.
+ */
+class PoseHistory {
+    private final double[] timestamps, xPositions, yPositions, angles, xVelocities, yVelocities, angularVelocities;
+    private int oldestIndex = 0, size = 0;
+
+    /**
+     * Constructs a new PoseHistory.
+     *
+     * @param capacity the maximum amount of samples the history holds. Once it's full, every new sample overrides the oldest one
+     */
+    PoseHistory(int capacity) {
+        timestamps = new double[capacity];
+        xPositions = new double[capacity];
+        yPositions = new double[capacity];
+        angles = new double[capacity];
+        xVelocities = new double[capacity];
+        yVelocities = new double[capacity];
+        angularVelocities = new double[capacity];
+    }
+
+    /**
+     * Adds a sample to the history. Samples that are older than the newest sample are ignored, so the history stays ordered.
+     *
+     * @param timestampSeconds the timestamp of the sample
+     * @param pose             the pose at the sample
+     * @param velocity         the field relative velocity at the sample
+     */
+    synchronized void addSample(double timestampSeconds, Pose2d pose, ChassisSpeeds velocity) {
+        if (size > 0 && timestampSeconds <= timestamps[getArrayIndex(size - 1)])
+            return;
+
+        final int index;
+        if (size < timestamps.length) {
+            index = getArrayIndex(size);
+            size++;
+        } else {
+            index = oldestIndex;
+            oldestIndex = (oldestIndex + 1) % timestamps.length;
+        }
+
+        timestamps[index] = timestampSeconds;
+        xPositions[index] = pose.getX();
+        yPositions[index] = pose.getY();
+        angles[index] = pose.getRotation().getRadians();
+        xVelocities[index] = velocity.vxMetersPerSecond;
+        yVelocities[index] = velocity.vyMetersPerSecond;
+        angularVelocities[index] = velocity.omegaRadiansPerSecond;
+    }
+
+    /**
+     * Moves the whole history into the frame of a correction that was applied to the estimate, so the history stays continuous with the corrected estimate.
+     * A vision correction shifts every pose after the measurement by the same rigid transform, so the transform that moved the current pose is applied to all the samples.
+     *
+     * @param poseBeforeCorrection the current pose before the correction
+     * @param poseAfterCorrection  the current pose after the correction
+     */
+    synchronized void applyCorrection(Pose2d poseBeforeCorrection, Pose2d poseAfterCorrection) {
+        final double angleCorrection = MathUtil.angleModulus(poseAfterCorrection.getRotation().getRadians() - poseBeforeCorrection.getRotation().getRadians());
+        final double cos = Math.cos(angleCorrection), sin = Math.sin(angleCorrection);
+
+        for (int i = 0; i < size; i++) {
+            final int index = getArrayIndex(i);
+            final double
+                    xDifference = xPositions[index] - poseBeforeCorrection.getX(),
+                    yDifference = yPositions[index] - poseBeforeCorrection.getY(),
+                    xVelocity = xVelocities[index],
+                    yVelocity = yVelocities[index];
+
+            xPositions[index] = poseAfterCorrection.getX() + cos * xDifference - sin * yDifference;
+            yPositions[index] = poseAfterCorrection.getY() + sin * xDifference + cos * yDifference;
+            angles[index] += angleCorrection;
+            xVelocities[index] = cos * xVelocity - sin * yVelocity;
+            yVelocities[index] = sin * xVelocity + cos * yVelocity;
+        }
+    }
+
+    synchronized void clear() {
+        oldestIndex = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the interpolated pose at the given timestamp.
+     * If the timestamp is newer than the newest sample, the newest pose is returned.
+     *
+     * @param timestampSeconds the timestamp
+     * @return the pose at the timestamp, or null if the history is empty or the timestamp is older than the history
+     */
+    synchronized Pose2d getPoseAt(double timestampSeconds) {
+        final int lowerSampleIndex = findLowerSampleIndex(timestampSeconds);
+        if (lowerSampleIndex == -1)
+            return null;
+
+        final int lowerIndex = getArrayIndex(lowerSampleIndex);
+        if (lowerSampleIndex == size - 1)
+            return new Pose2d(xPositions[lowerIndex], yPositions[lowerIndex], new Rotation2d(angles[lowerIndex]));
+
+        final int upperIndex = getArrayIndex(lowerSampleIndex + 1);
+        final double t = getInterpolationFactor(timestampSeconds, lowerIndex, upperIndex);
+        final double angleDifference = MathUtil.angleModulus(angles[upperIndex] - angles[lowerIndex]);
+        return new Pose2d(
+                MathUtil.interpolate(xPositions[lowerIndex], xPositions[upperIndex], t),
+                MathUtil.interpolate(yPositions[lowerIndex], yPositions[upperIndex], t),
+                new Rotation2d(angles[lowerIndex] + angleDifference * t)
+        );
+    }
+
+    /**
+     * Returns the interpolated field relative velocity at the given timestamp.
+     * If the timestamp is newer than the newest sample, the newest velocity is returned.
+     *
+     * @param timestampSeconds the timestamp
+     * @return the velocity at the timestamp, or null if the history is empty or the timestamp is older than the history
+     */
+    synchronized ChassisSpeeds getVelocityAt(double timestampSeconds) {
+        final int lowerSampleIndex = findLowerSampleIndex(timestampSeconds);
+        if (lowerSampleIndex == -1)
+            return null;
+
+        final int lowerIndex = getArrayIndex(lowerSampleIndex);
+        if (lowerSampleIndex == size - 1)
+            return new ChassisSpeeds(xVelocities[lowerIndex], yVelocities[lowerIndex], angularVelocities[lowerIndex]);
+
+        final int upperIndex = getArrayIndex(lowerSampleIndex + 1);
+        final double t = getInterpolationFactor(timestampSeconds, lowerIndex, upperIndex);
+        return new ChassisSpeeds(
+                MathUtil.interpolate(xVelocities[lowerIndex], xVelocities[upperIndex], t),
+                MathUtil.interpolate(yVelocities[lowerIndex], yVelocities[upperIndex], t),
+                MathUtil.interpolate(angularVelocities[lowerIndex], angularVelocities[upperIndex], t)
+        );
+    }
+
+    /**
+     * Finds the newest sample that isn't newer than the given timestamp, using a binary search.
+     *
+     * @param timestampSeconds the timestamp
+     * @return the index of the sample, counted from the oldest sample, or -1 if there is no such sample
+     */
+    private int findLowerSampleIndex(double timestampSeconds) {
+        if (size == 0 || timestampSeconds < timestamps[oldestIndex])
+            return -1;
+
+        int low = 0, high = size - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) / 2;
+            if (timestamps[getArrayIndex(middle)] <= timestampSeconds)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return low;
+    }
+
+    private double getInterpolationFactor(double timestampSeconds, int lowerIndex, int upperIndex) {
+        return (timestampSeconds - timestamps[lowerIndex]) / (timestamps[upperIndex] - timestamps[lowerIndex]);
+    }
+
+    private int getArrayIndex(int sampleIndex) {
+        return (oldestIndex + sampleIndex) % timestamps.length;
+    }
+}
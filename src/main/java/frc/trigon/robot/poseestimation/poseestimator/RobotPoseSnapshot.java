@@ -0,0 +1,34 @@
+package frc.trigon.robot.poseestimation.poseestimator;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.trigon.robot.utilities.AllianceUtilities;
+
+/**
+ * An immutable snapshot of the pose estimator's output, published atomically by the pose estimator's thread.
+ * Reading a single snapshot guarantees the pose, velocity and timestamp all belong to the same update.
+ */
+public class RobotPoseSnapshot {
+    /**
+     * The estimated pose of the robot
+     */
+    public final AllianceUtilities.AlliancePose2d pose;
+    /**
+     * The velocity of the robot, relative to the blue alliance's frame of reference
+     */
+    public final ChassisSpeeds blueAllianceVelocity;
+    /**
+     * The FPGA timestamp of the newest odometry sample that was applied to the pose, in seconds
+     */
+    public final double timestampSeconds;
+    /**
+     * The sequence number of the snapshot. Every published snapshot has a larger sequence number than the previous one
+     */
+    public final long sequenceNumber;
+
+    RobotPoseSnapshot(AllianceUtilities.AlliancePose2d pose, ChassisSpeeds blueAllianceVelocity, double timestampSeconds, long sequenceNumber) {
+        this.pose = pose;
+        this.blueAllianceVelocity = blueAllianceVelocity;
+        this.timestampSeconds = timestampSeconds;
+        this.sequenceNumber = sequenceNumber;
+    }
+}
@@ -0,0 +1,130 @@
+package frc.trigon.robot.poseestimation.poseestimator;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A class that collects the vision measurements of all the robot pose sources in a single cycle, and applies them to the pose estimator in one pass.
+ * The measurements are kept sorted by timestamp, so the pose estimator never has to replay its odometry for an out of order measurement.
+ * Measurements with the same timestamp are merged into a single measurement, weighted by the inverse of their variances.
+ */
+class VisionMeasurementBatcher {
+    /**
+     * The standard deviations are clamped to this minimum, so a perfectly trusted measurement won't get an infinite weight.
+     */
+    private static final double MINIMUM_STANDARD_DEVIATION = 1e-6;
+    private final double[]
+            timestamps,
+            translationWeights, weightedXSum, weightedYSum,
+            thetaWeights, referenceThetas, weightedThetaOffsetSum;
+    private int size = 0;
+
+    /**
+     * Constructs a new VisionMeasurementBatcher.
+     *
+     * @param capacity the maximum amount of measurements in a single cycle. Measurements that exceed the capacity are ignored
+     */
+    VisionMeasurementBatcher(int capacity) {
+        timestamps = new double[capacity];
+        translationWeights = new double[capacity];
+        weightedXSum = new double[capacity];
+        weightedYSum = new double[capacity];
+        thetaWeights = new double[capacity];
+        referenceThetas = new double[capacity];
+        weightedThetaOffsetSum = new double[capacity];
+    }
+
+    /**
+     * Adds a measurement to the batch, in its place by timestamp.
+     * If there's already a measurement with the same timestamp, the measurements are merged.
+     *
+     * @param blueAlliancePose             the measured pose, relative to the blue alliance driver station's right corner
+     * @param timestampSeconds             the timestamp of the measurement
+     * @param translationStandardDeviation the standard deviation of the measurement's x and y
+     * @param thetaStandardDeviation       the standard deviation of the measurement's angle
+     */
+    void addMeasurement(Pose2d blueAlliancePose, double timestampSeconds, double translationStandardDeviation, double thetaStandardDeviation) {
+        final int index = findInsertionIndex(timestampSeconds);
+        if (index < size && Math.abs(timestamps[index] - timestampSeconds) <= PoseEstimatorConstants.SAME_TIMESTAMP_TOLERANCE_SECONDS) {
+            mergeMeasurement(index, blueAlliancePose, translationStandardDeviation, thetaStandardDeviation);
+            return;
+        }
+        if (size == timestamps.length)
+            return;
+
+        shiftMeasurementsRight(index);
+        timestamps[index] = timestampSeconds;
+        translationWeights[index] = 0;
+        weightedXSum[index] = 0;
+        weightedYSum[index] = 0;
+        thetaWeights[index] = 0;
+        referenceThetas[index] = blueAlliancePose.getRotation().getRadians();
+        weightedThetaOffsetSum[index] = 0;
+        size++;
+        mergeMeasurement(index, blueAlliancePose, translationStandardDeviation, thetaStandardDeviation);
+    }
+
+    /**
+     * Applies all the measurements in the batch to the pose estimator, from oldest to newest, and clears the batch.
+     *
+     * @param poseEstimator the pose estimator to apply the measurements to
+     */
+    void applyMeasurements(SwerveDrivePoseEstimator poseEstimator) {
+        for (int i = 0; i < size; i++) {
+            final double translationStandardDeviation = Math.sqrt(1 / translationWeights[i]);
+            final double thetaStandardDeviation = Math.sqrt(1 / thetaWeights[i]);
+            final Pose2d mergedPose = new Pose2d(
+                    weightedXSum[i] / translationWeights[i],
+                    weightedYSum[i] / translationWeights[i],
+                    new Rotation2d(referenceThetas[i] + weightedThetaOffsetSum[i] / thetaWeights[i])
+            );
+
+            poseEstimator.addVisionMeasurement(
+                    mergedPose,
+                    timestamps[i],
+                    VecBuilder.fill(translationStandardDeviation, translationStandardDeviation, thetaStandardDeviation)
+            );
+        }
+
+        size = 0;
+    }
+
+    private void mergeMeasurement(int index, Pose2d blueAlliancePose, double translationStandardDeviation, double thetaStandardDeviation) {
+        translationStandardDeviation = Math.max(translationStandardDeviation, MINIMUM_STANDARD_DEVIATION);
+        thetaStandardDeviation = Math.max(thetaStandardDeviation, MINIMUM_STANDARD_DEVIATION);
+        final double translationWeight = 1 / (translationStandardDeviation * translationStandardDeviation);
+        final double thetaWeight = 1 / (thetaStandardDeviation * thetaStandardDeviation);
+        final double thetaOffset = MathUtil.angleModulus(blueAlliancePose.getRotation().getRadians() - referenceThetas[index]);
+
+        translationWeights[index] += translationWeight;
+        weightedXSum[index] += blueAlliancePose.getX() * translationWeight;
+        weightedYSum[index] += blueAlliancePose.getY() * translationWeight;
+        thetaWeights[index] += thetaWeight;
+        weightedThetaOffsetSum[index] += thetaOffset * thetaWeight;
+    }
+
+    private int findInsertionIndex(double timestampSeconds) {
+        int index = size;
+        while (index > 0 && timestamps[index - 1] >= timestampSeconds - PoseEstimatorConstants.SAME_TIMESTAMP_TOLERANCE_SECONDS)
+            index--;
+
+        return index;
+    }
+
+    private void shiftMeasurementsRight(int fromIndex) {
+        final int length = size - fromIndex;
+        if (length <= 0)
+            return;
+
+        System.arraycopy(timestamps, fromIndex, timestamps, fromIndex + 1, length);
+        System.arraycopy(translationWeights, fromIndex, translationWeights, fromIndex + 1, length);
+        System.arraycopy(weightedXSum, fromIndex, weightedXSum, fromIndex + 1, length);
+        System.arraycopy(weightedYSum, fromIndex, weightedYSum, fromIndex + 1, length);
+        System.arraycopy(thetaWeights, fromIndex, thetaWeights, fromIndex + 1, length);
+        System.arraycopy(referenceThetas, fromIndex, referenceThetas, fromIndex + 1, length);
+        System.arraycopy(weightedThetaOffsetSum, fromIndex, weightedThetaOffsetSum, fromIndex + 1, length);
+    }
+}
@@ -7,6 +7,7 @@ public class AprilTagLimelightIO extends RobotPoseSourceIO {
 
     protected AprilTagLimelightIO(String hostname) {
         fiducialLimelight = new FiducialLimelight(hostname);
+        updateOnNewFrame(fiducialLimelight.getJsonTopic());
     }
 
     @Override
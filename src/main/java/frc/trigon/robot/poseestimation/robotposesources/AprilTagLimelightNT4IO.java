@@ -0,0 +1,111 @@
+package frc.trigon.robot.poseestimation.robotposesources;
+
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.*;
+
+/**
+ * A Limelight IO that reads the robot pose from the Limelight's native NT4 topics, instead of polling its json dump.
+ * Every frame the Limelight published since the last update is read from the subscriber's queue with its NT timestamp, so no frames are lost between updates.
+ */
+public class AprilTagLimelightNT4IO extends RobotPoseSourceIO {
+    private static final int
+            TOTAL_LATENCY_INDEX = 6,
+            TAG_COUNT_INDEX = 7,
+            AVERAGE_TAG_DISTANCE_INDEX = 9;
+    private static final int FRAMES_QUEUE_SIZE = 20;
+    private final DoubleArraySubscriber robotPoseSubscriber;
+    private final DoubleSubscriber pipelineLatencySubscriber, captureLatencySubscriber;
+
+    protected AprilTagLimelightNT4IO(String hostname) {
+        final NetworkTable networkTable = NetworkTableInstance.getDefault().getTable(hostname);
+
+        robotPoseSubscriber = networkTable.getDoubleArrayTopic("botpose_wpiblue").subscribe(
+                new double[0],
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.pollStorage(FRAMES_QUEUE_SIZE)
+        );
+        pipelineLatencySubscriber = networkTable.getDoubleTopic("tl").subscribe(0);
+        captureLatencySubscriber = networkTable.getDoubleTopic("cl").subscribe(0);
+        updateOnNewFrame(robotPoseSubscriber.getTopic());
+    }
+
+    @Override
+    protected void updateInputs(RobotPoseSourceInputsAutoLogged inputs) {
+        final TimestampedDoubleArray[] frames = robotPoseSubscriber.readQueue();
+        int validFramesCount = 0;
+        for (TimestampedDoubleArray frame : frames) {
+            if (isValidFrame(frame.value))
+                validFramesCount++;
+        }
+
+        inputs.queuedResultsTimestamps = new double[validFramesCount];
+        inputs.queuedCameraPoses = new double[validFramesCount * 6];
+        inputs.queuedVisibleTags = new int[validFramesCount];
+        inputs.queuedAverageDistancesFromTags = new double[validFramesCount];
+
+        int currentFrameIndex = 0;
+        for (TimestampedDoubleArray frame : frames) {
+            if (!isValidFrame(frame.value))
+                continue;
+
+            updateQueuedFrameInputs(inputs, currentFrameIndex, frame);
+            currentFrameIndex++;
+        }
+
+        updateLatestFrameInputs(inputs, validFramesCount);
+    }
+
+    private void updateQueuedFrameInputs(RobotPoseSourceInputsAutoLogged inputs, int frameIndex, TimestampedDoubleArray frame) {
+        final double[] robotPoseArray = frame.value;
+        final int poseIndex = frameIndex * 6;
+
+        inputs.queuedResultsTimestamps[frameIndex] = frame.timestamp / 1e6 - Units.millisecondsToSeconds(getTotalLatencyMilliseconds(robotPoseArray));
+        inputs.queuedCameraPoses[poseIndex] = robotPoseArray[0];
+        inputs.queuedCameraPoses[poseIndex + 1] = robotPoseArray[1];
+        inputs.queuedCameraPoses[poseIndex + 2] = robotPoseArray[2];
+        inputs.queuedCameraPoses[poseIndex + 3] = Units.degreesToRadians(robotPoseArray[3]);
+        inputs.queuedCameraPoses[poseIndex + 4] = Units.degreesToRadians(robotPoseArray[4]);
+        inputs.queuedCameraPoses[poseIndex + 5] = Units.degreesToRadians(robotPoseArray[5]);
+        inputs.queuedVisibleTags[frameIndex] = robotPoseArray.length > TAG_COUNT_INDEX ? (int) robotPoseArray[TAG_COUNT_INDEX] : 1;
+        inputs.queuedAverageDistancesFromTags[frameIndex] = robotPoseArray.length > AVERAGE_TAG_DISTANCE_INDEX ? robotPoseArray[AVERAGE_TAG_DISTANCE_INDEX] : 0;
+    }
+
+    /**
+     * Updates the inputs of the latest result from the newest queued frame, so the latest result is always the newest frame.
+     */
+    private void updateLatestFrameInputs(RobotPoseSourceInputsAutoLogged inputs, int validFramesCount) {
+        if (validFramesCount == 0) {
+            inputs.hasResult = false;
+            inputs.visibleTags = 0;
+            return;
+        }
+
+        final int newestFrameIndex = validFramesCount - 1;
+        inputs.hasResult = true;
+        inputs.lastResultTimestamp = inputs.queuedResultsTimestamps[newestFrameIndex];
+        inputs.cameraPose = new double[6];
+        System.arraycopy(inputs.queuedCameraPoses, newestFrameIndex * 6, inputs.cameraPose, 0, 6);
+        inputs.visibleTags = inputs.queuedVisibleTags[newestFrameIndex];
+        inputs.averageDistanceFromTags = inputs.queuedAverageDistancesFromTags[newestFrameIndex];
+    }
+
+    /**
+     * The Limelight publishes a zeroed pose when it doesn't see any tags, so frames without tags or a full pose are ignored.
+     */
+    private boolean isValidFrame(double[] robotPoseArray) {
+        if (robotPoseArray.length < 6)
+            return false;
+        if (robotPoseArray.length > TAG_COUNT_INDEX)
+            return robotPoseArray[TAG_COUNT_INDEX] > 0;
+        return robotPoseArray[0] != 0 || robotPoseArray[1] != 0;
+    }
+
+    /**
+     * Older Limelight firmware doesn't include the total latency in the pose array, so the latest pipeline and capture latencies are used instead.
+     */
+    private double getTotalLatencyMilliseconds(double[] robotPoseArray) {
+        if (robotPoseArray.length > TOTAL_LATENCY_INDEX)
+            return robotPoseArray[TOTAL_LATENCY_INDEX];
+        return pipelineLatencySubscriber.get() + captureLatencySubscriber.get();
+    }
+}
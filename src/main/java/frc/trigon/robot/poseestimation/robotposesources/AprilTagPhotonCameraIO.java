@@ -2,51 +2,167 @@ package frc.trigon.robot.poseestimation.robotposesources;
 
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
 import frc.trigon.robot.poseestimation.photonposeestimator.EstimatedRobotPose;
+import frc.trigon.robot.poseestimation.photonposeestimator.MultiTagPnPSolverService;
 import frc.trigon.robot.poseestimation.photonposeestimator.PhotonPoseEstimator;
+import frc.trigon.robot.utilities.AprilTagLayoutCache;
+import org.littletonrobotics.junction.Logger;
 import org.photonvision.PhotonCamera;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
 public class AprilTagPhotonCameraIO extends RobotPoseSourceIO {
     private final PhotonCamera photonCamera;
     private final PhotonPoseEstimator photonPoseEstimator;
+    private final Queue<EstimatedRobotPose> completedEstimates = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> fallbackEstimations = new ConcurrentLinkedQueue<>();
+    private final Executor fallbackExecutor = this::queueFallbackEstimation;
+    private final List<EstimatedRobotPose> polledEstimates = new ArrayList<>();
+    private volatile Thread updatingThread = null;
 
     protected AprilTagPhotonCameraIO(String cameraName, Transform3d robotCenterToCamera) {
         photonCamera = new PhotonCamera(cameraName);
 
         photonPoseEstimator = new PhotonPoseEstimator(
-                RobotPoseSourceConstants.APRIL_TAG_FIELD_LAYOUT,
+                AprilTagLayoutCache.getCurrent().getLayout(),
                 RobotPoseSourceConstants.PRIMARY_POSE_STRATEGY,
                 photonCamera,
                 robotCenterToCamera
         );
 
         photonPoseEstimator.setMultiTagFallbackStrategy(RobotPoseSourceConstants.SECONDARY_POSE_STRATEGY);
+        updateOnNewFrame(NetworkTableInstance.getDefault().getTable("photonvision").getSubTable(cameraName).getRawTopic("rawBytes"));
     }
 
     @Override
     protected void updateInputs(RobotPoseSourceInputsAutoLogged inputs) {
+        updatingThread = Thread.currentThread();
+        updateFieldLayout();
         final PhotonPipelineResult latestResult = photonCamera.getLatestResult();
-        Optional<EstimatedRobotPose> optionalEstimatedRobotPose = photonPoseEstimator.update(latestResult);
+        photonPoseEstimator.updateAsync(latestResult, fallbackExecutor).whenComplete(this::onEstimateCompleted);
+        runFallbackEstimations();
+        updatingThread = null;
 
-        inputs.hasResult = optionalEstimatedRobotPose.isPresent();
+        pollCompletedEstimates();
+        inputs.hasResult = !polledEstimates.isEmpty();
         if (inputs.hasResult) {
-            final EstimatedRobotPose estimatedRobotPose = optionalEstimatedRobotPose.get();
+            final EstimatedRobotPose estimatedRobotPose = getNewestPolledEstimate();
             inputs.cameraPose = RobotPoseSource.pose3dToDoubleArray(estimatedRobotPose.estimatedPose);
             inputs.lastResultTimestamp = estimatedRobotPose.timestampSeconds;
             inputs.visibleTags = estimatedRobotPose.targetsUsed.size();
-            inputs.averageDistanceFromTags = getAverageDistanceFromTags(latestResult);
+            inputs.averageDistanceFromTags = getAverageDistanceFromTags(estimatedRobotPose.targetsUsed);
         } else {
             inputs.visibleTags = 0;
         }
+        updateQueuedResults(inputs);
     }
 
-    private double getAverageDistanceFromTags(PhotonPipelineResult result) {
-        final List<PhotonTrackedTarget> targets = result.targets;
+    @Override
+    protected void recordOutputs(String loggingPath) {
+        photonPoseEstimator.logStrategyMetrics(loggingPath + "Strategies/");
+        Logger.recordOutput(loggingPath + "MultiTagPnPSolverDroppedFrames", MultiTagPnPSolverService.getInstance().getDroppedFramesCount());
+    }
+
+    /**
+     * Updates the pose estimator's layout if the current layout was swapped.
+     */
+    private void updateFieldLayout() {
+        final AprilTagLayoutCache currentLayoutCache = AprilTagLayoutCache.getCurrent();
+        if (photonPoseEstimator.getFieldTags() != currentLayoutCache.getLayout())
+            photonPoseEstimator.setFieldTags(currentLayoutCache);
+    }
+
+    /**
+     * Queues a completed estimate. Estimates that complete asynchronously request an update, so they're published without waiting for the next frame.
+     *
+     * @param optionalEstimatedRobotPose the estimate, or null if the estimation failed
+     * @param exception                  the exception that failed the estimation, or null if it didn't fail
+     */
+    private void onEstimateCompleted(Optional<EstimatedRobotPose> optionalEstimatedRobotPose, Throwable exception) {
+        if (exception != null) {
+            DriverStation.reportError("Failed to estimate the pose of " + photonCamera.getName() + ": " + exception, exception.getStackTrace());
+            return;
+        }
+        if (optionalEstimatedRobotPose.isEmpty())
+            return;
+
+        completedEstimates.offer(optionalEstimatedRobotPose.get());
+        if (Thread.currentThread() != updatingThread)
+            requestUpdate();
+    }
+
+    /**
+     * Queues the fallback estimation of a frame that the asynchronous multi-tag solve couldn't estimate.
+     * The fallback strategies share state with the pose estimator, so they're run on the updating thread in the next update, rather than on the solver's threads.
+     */
+    private void queueFallbackEstimation(Runnable fallbackEstimation) {
+        fallbackEstimations.offer(fallbackEstimation);
+        if (Thread.currentThread() != updatingThread)
+            requestUpdate();
+    }
+
+    private void runFallbackEstimations() {
+        Runnable currentFallbackEstimation = fallbackEstimations.poll();
+        while (currentFallbackEstimation != null) {
+            currentFallbackEstimation.run();
+            currentFallbackEstimation = fallbackEstimations.poll();
+        }
+    }
+
+    /**
+     * Polls the estimates that were completed since the last update.
+     * Multi-tag solves run asynchronously, so an estimate may complete a few updates after its frame was read, and estimates may complete out of order.
+     */
+    private void pollCompletedEstimates() {
+        polledEstimates.clear();
+
+        EstimatedRobotPose currentEstimate = completedEstimates.poll();
+        while (currentEstimate != null) {
+            polledEstimates.add(currentEstimate);
+            currentEstimate = completedEstimates.poll();
+        }
+    }
+
+    private EstimatedRobotPose getNewestPolledEstimate() {
+        EstimatedRobotPose newestEstimate = polledEstimates.get(0);
+        for (EstimatedRobotPose currentEstimate : polledEstimates) {
+            if (currentEstimate.timestampSeconds > newestEstimate.timestampSeconds)
+                newestEstimate = currentEstimate;
+        }
+        return newestEstimate;
+    }
+
+    /**
+     * Puts all the estimates that were polled in the current update in the queued results, so none of them is lost when several complete at once.
+     *
+     * @param inputs the inputs to update
+     */
+    private void updateQueuedResults(RobotPoseSourceInputsAutoLogged inputs) {
+        final int estimatesCount = polledEstimates.size();
+        inputs.queuedResultsTimestamps = new double[estimatesCount];
+        inputs.queuedCameraPoses = new double[estimatesCount * 6];
+        inputs.queuedVisibleTags = new int[estimatesCount];
+        inputs.queuedAverageDistancesFromTags = new double[estimatesCount];
+
+        for (int i = 0; i < estimatesCount; i++) {
+            final EstimatedRobotPose currentEstimate = polledEstimates.get(i);
+            inputs.queuedResultsTimestamps[i] = currentEstimate.timestampSeconds;
+            System.arraycopy(RobotPoseSource.pose3dToDoubleArray(currentEstimate.estimatedPose), 0, inputs.queuedCameraPoses, i * 6, 6);
+            inputs.queuedVisibleTags[i] = currentEstimate.targetsUsed.size();
+            inputs.queuedAverageDistancesFromTags[i] = getAverageDistanceFromTags(currentEstimate.targetsUsed);
+        }
+    }
+
+    private double getAverageDistanceFromTags(List<PhotonTrackedTarget> targets) {
         double distanceSum = 0;
 
         for (PhotonTrackedTarget currentTarget : targets) {
@@ -1,18 +1,33 @@
 package frc.trigon.robot.poseestimation.robotposesources;
 
 import edu.wpi.first.math.geometry.*;
+import edu.wpi.first.wpilibj.Notifier;
 import frc.trigon.robot.Robot;
 import frc.trigon.robot.utilities.AllianceUtilities;
 import org.littletonrobotics.junction.Logger;
 
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * A pose source is a class that provides the robot's pose, from a camera.
+ * The IO and pose estimation of every pose source run on the source's own worker thread, so multiple cameras are processed in parallel.
+ * The worker of a periodic IO runs periodically, and the worker of an event driven IO wakes up whenever the IO requests an update, such as when its camera publishes a new frame.
+ * Update requests only signal the worker, so the thread that requests the update, such as the NetworkTables listener thread, never runs the IO itself.
+ * The worker publishes its latest inputs, and {@link #update()} picks them up and logs them from the pose estimator's thread.
+ * If the worker updates more than once before the inputs are picked up, the queued results of the updates are accumulated, so no queued frame is lost.
  */
-public class RobotPoseSource {
+public class RobotPoseSource implements AutoCloseable {
     protected final String name;
-    private final RobotPoseSourceInputsAutoLogged inputs = new RobotPoseSourceInputsAutoLogged();
     private final Transform3d robotCenterToCamera;
     private final RobotPoseSourceIO robotPoseSourceIO;
+    private final RobotPoseSourceInputsAutoLogged workerInputs = new RobotPoseSourceInputsAutoLogged();
+    private final AtomicReference<RobotPoseSourceInputsAutoLogged> latestWorkerInputs = new AtomicReference<>(new RobotPoseSourceInputsAutoLogged());
+    private final Notifier workerNotifier = new Notifier(this::updateWorkerInputs);
+    private final Semaphore updateRequests = new Semaphore(0);
+    private final Thread eventDrivenWorkerThread = new Thread(this::runEventDrivenWorker);
+    private RobotPoseSourceInputsAutoLogged inputs = latestWorkerInputs.get();
     private double lastUpdatedTimestamp;
     private AllianceUtilities.AlliancePose2d cachedPose = null;
 
@@ -27,6 +42,18 @@ public class RobotPoseSource {
             robotPoseSourceIO = robotPoseSourceType.createIOFunction.apply(name, robotCenterToCamera);
         else
             robotPoseSourceIO = new RobotPoseSourceIO();
+
+        workerNotifier.setName(name + "PoseSourceWorker");
+        eventDrivenWorkerThread.setName(name + "PoseSourceWorker");
+        eventDrivenWorkerThread.setDaemon(true);
+        if (!Robot.IS_REAL)
+            return;
+
+        robotPoseSourceIO.setUpdateRequestListener(updateRequests::release);
+        if (robotPoseSourceIO.isEventDriven())
+            eventDrivenWorkerThread.start();
+        else
+            workerNotifier.startPeriodic(RobotPoseSourceConstants.WORKER_UPDATE_PERIOD_SECONDS);
     }
 
     public static double[] pose3dToDoubleArray(Pose3d pose) {
@@ -43,9 +70,26 @@ public class RobotPoseSource {
         };
     }
 
+    @Override
+    public void close() {
+        workerNotifier.close();
+        eventDrivenWorkerThread.interrupt();
+        robotPoseSourceIO.close();
+    }
+
+    /**
+     * Picks up the latest inputs that were published by the worker, and logs them.
+     * In replay, the inputs are read from the log instead.
+     */
     public void update() {
-        robotPoseSourceIO.updateInputs(inputs);
+        final RobotPoseSourceInputsAutoLogged newInputs = latestWorkerInputs.getAndSet(null);
+        if (newInputs != null)
+            inputs = newInputs;
+        else
+            clearQueuedResults(inputs);
+
         Logger.processInputs(name, inputs);
+        robotPoseSourceIO.recordOutputs("PoseEstimator/" + name + "/");
         cachedPose = getUnCachedRobotPose();
         if (!inputs.hasResult || cachedPose == null)
             Logger.recordOutput("Poses/Robot/" + name + "Pose", RobotPoseSourceConstants.OUT_OF_FIELD_POSE);
@@ -77,6 +121,108 @@ public class RobotPoseSource {
         return inputs.lastResultTimestamp;
     }
 
+    /**
+     * @return the amount of results that were queued since the last update, for IOs that queue every frame
+     */
+    public int getQueuedResultsCount() {
+        return inputs.queuedResultsTimestamps.length;
+    }
+
+    public double getQueuedResultTimestamp(int resultIndex) {
+        return inputs.queuedResultsTimestamps[resultIndex];
+    }
+
+    public int getQueuedResultVisibleTags(int resultIndex) {
+        return inputs.queuedVisibleTags[resultIndex];
+    }
+
+    public double getQueuedResultAverageDistanceFromTags(int resultIndex) {
+        return inputs.queuedAverageDistancesFromTags[resultIndex];
+    }
+
+    /**
+     * Returns the robot pose of one of the results that were queued since the last update.
+     *
+     * @param resultIndex the index of the queued result
+     * @return the robot pose of the result
+     */
+    public AllianceUtilities.AlliancePose2d getQueuedResultRobotPose(int resultIndex) {
+        final int poseIndex = resultIndex * 6;
+        final Pose3d cameraPose = new Pose3d(
+                new Translation3d(inputs.queuedCameraPoses[poseIndex], inputs.queuedCameraPoses[poseIndex + 1], inputs.queuedCameraPoses[poseIndex + 2]),
+                new Rotation3d(inputs.queuedCameraPoses[poseIndex + 3], inputs.queuedCameraPoses[poseIndex + 4], inputs.queuedCameraPoses[poseIndex + 5])
+        );
+
+        return AllianceUtilities.AlliancePose2d.fromBlueAlliancePose(cameraPose.transformBy(robotCenterToCamera.inverse()).toPose2d());
+    }
+
+    /**
+     * Runs the worker of an event driven IO, which waits for update requests and updates the IO once for all the requests that arrived while it was busy.
+     */
+    private void runEventDrivenWorker() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                updateRequests.acquire();
+                updateRequests.drainPermits();
+                updateWorkerInputs();
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * Runs the IO and publishes a copy of the inputs. This only runs on the source's worker thread.
+     */
+    private void updateWorkerInputs() {
+        robotPoseSourceIO.updateInputs(workerInputs);
+        final RobotPoseSourceInputsAutoLogged publishedInputs = workerInputs.clone();
+
+        RobotPoseSourceInputsAutoLogged unconsumedInputs;
+        RobotPoseSourceInputsAutoLogged mergedInputs;
+        do {
+            unconsumedInputs = latestWorkerInputs.get();
+            mergedInputs = mergeQueuedResults(unconsumedInputs, publishedInputs);
+        } while (!latestWorkerInputs.compareAndSet(unconsumedInputs, mergedInputs));
+    }
+
+    /**
+     * Creates inputs with the newer inputs' values, and the queued results of both inputs.
+     *
+     * @param olderInputs the inputs that weren't picked up yet, or null if there are none
+     * @param newerInputs the newly published inputs
+     * @return the merged inputs
+     */
+    private RobotPoseSourceInputsAutoLogged mergeQueuedResults(RobotPoseSourceInputsAutoLogged olderInputs, RobotPoseSourceInputsAutoLogged newerInputs) {
+        if (olderInputs == null || olderInputs.queuedResultsTimestamps.length == 0)
+            return newerInputs;
+
+        final RobotPoseSourceInputsAutoLogged mergedInputs = newerInputs.clone();
+        mergedInputs.queuedResultsTimestamps = concatenate(olderInputs.queuedResultsTimestamps, newerInputs.queuedResultsTimestamps);
+        mergedInputs.queuedCameraPoses = concatenate(olderInputs.queuedCameraPoses, newerInputs.queuedCameraPoses);
+        mergedInputs.queuedVisibleTags = concatenate(olderInputs.queuedVisibleTags, newerInputs.queuedVisibleTags);
+        mergedInputs.queuedAverageDistancesFromTags = concatenate(olderInputs.queuedAverageDistancesFromTags, newerInputs.queuedAverageDistancesFromTags);
+        return mergedInputs;
+    }
+
+    private double[] concatenate(double[] first, double[] second) {
+        final double[] concatenated = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, concatenated, first.length, second.length);
+        return concatenated;
+    }
+
+    private int[] concatenate(int[] first, int[] second) {
+        final int[] concatenated = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, concatenated, first.length, second.length);
+        return concatenated;
+    }
+
+    private void clearQueuedResults(RobotPoseSourceInputsAutoLogged inputs) {
+        inputs.queuedResultsTimestamps = new double[0];
+        inputs.queuedCameraPoses = new double[0];
+        inputs.queuedVisibleTags = new int[0];
+        inputs.queuedAverageDistancesFromTags = new double[0];
+    }
+
     private AllianceUtilities.AlliancePose2d getUnCachedRobotPose() {
         final Pose3d cameraPose = doubleArrayToPose3d(inputs.cameraPose);
         if (cameraPose == null)
@@ -1,11 +1,72 @@
 package frc.trigon.robot.poseestimation.robotposesources;
 
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.Topic;
 import org.littletonrobotics.junction.AutoLog;
 
-public class RobotPoseSourceIO {
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+public class RobotPoseSourceIO implements AutoCloseable {
+    private final List<Integer> listenerHandles = new ArrayList<>();
+    private volatile Runnable updateRequestListener = () -> {
+    };
+
+    @Override
+    public void close() {
+        for (int listenerHandle : listenerHandles)
+            NetworkTableInstance.getDefault().removeListener(listenerHandle);
+        listenerHandles.clear();
+    }
+
+    /**
+     * Makes the IO event driven, so it's updated whenever a new value is published to the given topic, instead of periodically.
+     * The listener only requests an update, and the update itself runs on the source's worker thread, so the new frame is decoded as soon as it arrives,
+     * off the main thread, and without blocking the NetworkTables listener thread.
+     * This should be called from the IO's constructor.
+     *
+     * @param frameTopic the topic that the camera publishes its frames to
+     */
+    protected void updateOnNewFrame(Topic frameTopic) {
+        listenerHandles.add(NetworkTableInstance.getDefault().addListener(
+                frameTopic,
+                EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                (event) -> requestUpdate()
+        ));
+    }
+
+    /**
+     * Requests the IO to be updated as soon as possible, for data that arrives outside of the frame topics, such as asynchronous solves.
+     * This only wakes up the source's worker thread, so it's cheap, and can be called from any thread.
+     */
+    protected void requestUpdate() {
+        updateRequestListener.run();
+    }
+
+    /**
+     * @return whether the IO is updated when new frames arrive, rather than periodically
+     */
+    boolean isEventDriven() {
+        return !listenerHandles.isEmpty();
+    }
+
+    void setUpdateRequestListener(Runnable updateRequestListener) {
+        this.updateRequestListener = updateRequestListener;
+    }
+
     protected void updateInputs(RobotPoseSourceInputsAutoLogged inputs) {
     }
 
+    /**
+     * Logs outputs that aren't inputs, such as metrics of the IO. This is called from the pose estimator's thread, after the inputs are processed.
+     *
+     * @param loggingPath the path to log the outputs under
+     */
+    protected void recordOutputs(String loggingPath) {
+    }
+
     @AutoLog
     public static class RobotPoseSourceInputs {
         public boolean hasResult = false;
@@ -13,5 +74,15 @@ public class RobotPoseSourceIO {
         public double[] cameraPose = new double[6];
         public double averageDistanceFromTags = 0;
         public int visibleTags = 0;
+        public int confidence = 0;
+        public double[] cameraVelocity = new double[0];
+
+        /**
+         * All the results since the last update, for IOs that queue every frame. Every camera pose takes 6 values.
+         */
+        public double[] queuedResultsTimestamps = new double[0];
+        public double[] queuedCameraPoses = new double[0];
+        public int[] queuedVisibleTags = new int[0];
+        public double[] queuedAverageDistancesFromTags = new double[0];
     }
 }
@@ -1,51 +1,92 @@
 package frc.trigon.robot.poseestimation.robotposesources;
 
+import com.google.gson.stream.JsonReader;
 import edu.wpi.first.math.geometry.*;
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.*;
 import frc.trigon.robot.utilities.JsonHandler;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A robot pose source IO for the T265, that reads the T265's frames from the coprocessor.
+ * The coprocessor can publish every frame either as a json dump, or as a compact binary frame, and the newest of the two is used.
+ * The binary frame is {@value #BINARY_FRAME_DOUBLES} little endian doubles: translation (x, y, z), rotation quaternion (w, x, y, z), velocity (x, y, z) and confidence.
+ * The binary frame must be published to the "T265/&lt;name&gt;/frame" raw topic with the {@value #BINARY_FRAME_TYPE_STRING} type string,
+ * since NetworkTables ignores values that are published with a different type string, such as plain "raw".
+ */
 public class T265IO extends RobotPoseSourceIO {
     private static final NetworkTable NETWORK_TABLE = NetworkTableInstance.getDefault().getTable("T265");
     private static final short CONFIDENCE_THRESHOLD = 2;
+    private static final int BINARY_FRAME_DOUBLES = 11;
+    private static final String BINARY_FRAME_TYPE_STRING = "T265Frame";
+    private static final CoordinateSystem EUS_COORDINATE_SYSTEM = new CoordinateSystem(CoordinateAxis.E(), CoordinateAxis.U(), CoordinateAxis.S());
+    private static final Rotation3d T265_TO_ROBOT_YAW_OFFSET = new Rotation3d(0, 0, Math.toRadians(90));
     private final NetworkTableEntry jsonDump;
+    private final RawSubscriber binaryFrameSubscriber;
+    private final T265Frame frame = new T265Frame();
 
     protected T265IO(String name) {
         jsonDump = NETWORK_TABLE.getEntry(name + "/jsonDump");
+        binaryFrameSubscriber = NETWORK_TABLE.getRawTopic(name + "/frame").subscribe(BINARY_FRAME_TYPE_STRING, new byte[0]);
+        updateOnNewFrame(binaryFrameSubscriber.getTopic());
+        updateOnNewFrame(jsonDump.getTopic());
     }
 
     @Override
     protected void updateInputs(RobotPoseSourceInputsAutoLogged inputs) {
-        inputs.hasResult = canUseJsonDump();
-        if (inputs.hasResult)
-            inputs.cameraPose = RobotPoseSource.pose3dToDoubleArray(getCameraPose());
-        inputs.lastResultTimestamp = (double) jsonDump.getLastChange() / 1000000;
+        inputs.lastResultTimestamp = decodeLatestFrame();
+        inputs.hasResult = canUseFrame();
+        inputs.confidence = frame.confidence;
+        if (!inputs.hasResult) {
+            inputs.cameraPose = new double[0];
+            inputs.cameraVelocity = new double[0];
+            return;
+        }
+
+        inputs.cameraPose = RobotPoseSource.pose3dToDoubleArray(getRobotPoseFromFrame());
+        inputs.cameraVelocity = getVelocityFromFrame();
     }
 
-    private Pose3d getCameraPose() {
-        if (!canUseJsonDump())
-            return null;
+    /**
+     * Decodes the newest frame, from either the binary topic or the json dump, depending on which one was updated last.
+     *
+     * @return the timestamp of the frame, in seconds
+     */
+    private double decodeLatestFrame() {
+        final TimestampedRaw binaryFrame = binaryFrameSubscriber.getAtomic();
+        if (binaryFrame.timestamp != 0 && binaryFrame.timestamp >= jsonDump.getLastChange()) {
+            frame.decode(binaryFrame.value);
+            return (double) binaryFrame.timestamp / 1000000;
+        }
 
-        return getRobotPoseFromJsonDump();
+        frame.decode(jsonDump.getString(""));
+        return (double) jsonDump.getLastChange() / 1000000;
     }
 
-    private Pose3d getRobotPoseFromJsonDump() {
-        final T265JsonDump jsonDump = getJsonDump();
-        final Translation3d translation = getTranslationFromDoubleArray(jsonDump.translation);
-        final Rotation3d rotation = getRotationFromDoubleArray(jsonDump.rotation);
+    private Pose3d getRobotPoseFromFrame() {
+        final Translation3d translation = getTranslationFromDoubleArray(frame.translation);
+        final Rotation3d rotation = getRotationFromDoubleArray(frame.rotation);
 
         return t265PoseToWPIPose(new Pose3d(translation, rotation));
     }
 
     private Pose3d t265PoseToWPIPose(Pose3d t265Pose) {
-        final CoordinateSystem eusCoordinateSystem = new CoordinateSystem(CoordinateAxis.E(), CoordinateAxis.U(), CoordinateAxis.S());
-        final Pose3d convertedPose = CoordinateSystem.convert(t265Pose, eusCoordinateSystem, CoordinateSystem.NWU());
-        final Rotation3d convertedRotation = convertedPose.getRotation().plus(new Rotation3d(0, 0, Math.toRadians(90)));
+        final Pose3d convertedPose = CoordinateSystem.convert(t265Pose, EUS_COORDINATE_SYSTEM, CoordinateSystem.NWU());
+        final Rotation3d convertedRotation = convertedPose.getRotation().plus(T265_TO_ROBOT_YAW_OFFSET);
 
         return new Pose3d(convertedPose.getTranslation(), convertedRotation);
     }
 
+    private double[] getVelocityFromFrame() {
+        if (frame.velocityLength != frame.velocity.length)
+            return new double[0];
+
+        final Translation3d convertedVelocity = CoordinateSystem.convert(getTranslationFromDoubleArray(frame.velocity), EUS_COORDINATE_SYSTEM, CoordinateSystem.NWU());
+        return new double[]{convertedVelocity.getX(), convertedVelocity.getY(), convertedVelocity.getZ()};
+    }
+
     private Translation3d getTranslationFromDoubleArray(double[] xyz) {
         return new Translation3d(xyz[0], xyz[1], xyz[2]);
     }
@@ -54,23 +95,78 @@ public class T265IO extends RobotPoseSourceIO {
         return new Rotation3d(new Quaternion(wxyz[0], wxyz[1], wxyz[2], wxyz[3]));
     }
 
-    private boolean canUseJsonDump() {
-        final T265JsonDump jsonDump = getJsonDump();
+    private boolean canUseFrame() {
+        return frame.confidence >= CONFIDENCE_THRESHOLD &&
+                frame.translationLength == frame.translation.length &&
+                frame.rotationLength == frame.rotation.length;
+    }
 
-        try {
-            return jsonDump.confidence >= CONFIDENCE_THRESHOLD && jsonDump.translation.length == 3 && jsonDump.rotation.length == 4;
-        } catch (NullPointerException e) {
-            return false;
+    /**
+     * The fields of a T265 frame, decoded into preallocated primitive holders.
+     */
+    private static class T265Frame {
+        private final double[] translation = new double[3];
+        private final double[] rotation = new double[4];
+        private final double[] velocity = new double[3];
+        private int translationLength = 0, rotationLength = 0, velocityLength = 0;
+        private int confidence = 0;
+
+        /**
+         * Decodes a json dump into this frame, with a streaming reader. If the json is empty or malformed, the frame is cleared.
+         *
+         * @param jsonString the json dump
+         */
+        private void decode(String jsonString) {
+            clear();
+            if (jsonString.isEmpty())
+                return;
+
+            try (JsonReader reader = JsonHandler.createStreamingReader(jsonString)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "translation" -> translationLength = JsonHandler.readDoubleArray(reader, translation);
+                        case "rotation" -> rotationLength = JsonHandler.readDoubleArray(reader, rotation);
+                        case "velocity" -> velocityLength = JsonHandler.readDoubleArray(reader, velocity);
+                        case "confidence" -> confidence = reader.nextInt();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                clear();
+            }
         }
-    }
 
-    private T265JsonDump getJsonDump() {
-        return JsonHandler.parseJsonStringToObject(jsonDump.getString(""), T265JsonDump.class);
-    }
+        /**
+         * Decodes a binary frame into this frame. If the frame doesn't have the right size, the frame is cleared.
+         *
+         * @param binaryFrame the binary frame
+         */
+        private void decode(byte[] binaryFrame) {
+            clear();
+            if (binaryFrame.length != BINARY_FRAME_DOUBLES * Double.BYTES)
+                return;
+
+            final ByteBuffer buffer = ByteBuffer.wrap(binaryFrame).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < translation.length; i++)
+                translation[i] = buffer.getDouble();
+            for (int i = 0; i < rotation.length; i++)
+                rotation[i] = buffer.getDouble();
+            for (int i = 0; i < velocity.length; i++)
+                velocity[i] = buffer.getDouble();
+            confidence = (int) buffer.getDouble();
+
+            translationLength = translation.length;
+            rotationLength = rotation.length;
+            velocityLength = velocity.length;
+        }
 
-    private static class T265JsonDump {
-        private double[] translation;
-        private double[] rotation;
-        private int confidence;
+        private void clear() {
+            translationLength = 0;
+            rotationLength = 0;
+            velocityLength = 0;
+            confidence = 0;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package frc.trigon.robot.subsystems.swerve;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * A bounded history of the gyro's heading, ordered by timestamp.
+ * The history is stored in preallocated primitive arrays, and looked up with a binary search.
+ * Headings between two samples are interpolated along the shortest angle between them.
+ */
+class HeadingHistory {
+    private final double[] timestamps, headingsRadians;
+    private int oldestIndex = 0, size = 0;
+
+    /**
+     * Constructs a new HeadingHistory.
+     *
+     * @param capacity the maximum amount of samples the history holds. Once it's full, every new sample overrides the oldest one
+     */
+    HeadingHistory(int capacity) {
+        timestamps = new double[capacity];
+        headingsRadians = new double[capacity];
+    }
+
+    /**
+     * Adds a sample to the history. Samples that aren't newer than the newest sample are ignored, so the history stays ordered.
+     *
+     * @param timestampSeconds the timestamp of the sample
+     * @param headingRadians   the heading at the sample, in radians
+     */
+    synchronized void addSample(double timestampSeconds, double headingRadians) {
+        if (size > 0 && timestampSeconds <= timestamps[getArrayIndex(size - 1)])
+            return;
+
+        final int index;
+        if (size < timestamps.length) {
+            index = getArrayIndex(size);
+            size++;
+        } else {
+            index = oldestIndex;
+            oldestIndex = (oldestIndex + 1) % timestamps.length;
+        }
+
+        timestamps[index] = timestampSeconds;
+        headingsRadians[index] = headingRadians;
+    }
+
+    /**
+     * Returns the interpolated heading at the given timestamp.
+     * If the timestamp is newer than the newest sample, the newest heading is returned,
+     * and if it's older than the oldest sample, the oldest heading is returned.
+     *
+     * @param timestampSeconds the timestamp
+     * @param defaultHeadingRadians the heading to return if the history is empty
+     * @return the heading at the timestamp in radians, wrapped to [-pi, pi]
+     */
+    synchronized double getHeadingRadiansAt(double timestampSeconds, double defaultHeadingRadians) {
+        if (size == 0)
+            return defaultHeadingRadians;
+        if (timestampSeconds <= timestamps[oldestIndex])
+            return MathUtil.angleModulus(headingsRadians[oldestIndex]);
+
+        final int lowerSampleIndex = findLowerSampleIndex(timestampSeconds);
+        final int lowerIndex = getArrayIndex(lowerSampleIndex);
+        if (lowerSampleIndex == size - 1)
+            return MathUtil.angleModulus(headingsRadians[lowerIndex]);
+
+        final int upperIndex = getArrayIndex(lowerSampleIndex + 1);
+        final double t = (timestampSeconds - timestamps[lowerIndex]) / (timestamps[upperIndex] - timestamps[lowerIndex]);
+        final double headingDifference = MathUtil.angleModulus(headingsRadians[upperIndex] - headingsRadians[lowerIndex]);
+        return MathUtil.angleModulus(headingsRadians[lowerIndex] + headingDifference * t);
+    }
+
+    /**
+     * Finds the newest sample that isn't newer than the given timestamp, using a binary search.
+     * The timestamp must not be older than the oldest sample.
+     *
+     * @param timestampSeconds the timestamp
+     * @return the index of the sample, counted from the oldest sample
+     */
+    private int findLowerSampleIndex(double timestampSeconds) {
+        int low = 0, high = size - 1;
+        while (low < high) {
+            final int middle = (low + high + 1) / 2;
+            if (timestamps[getArrayIndex(middle)] <= timestampSeconds)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return low;
+    }
+
+    private int getArrayIndex(int sampleIndex) {
+        return (oldestIndex + sampleIndex) % timestamps.length;
+    }
+}
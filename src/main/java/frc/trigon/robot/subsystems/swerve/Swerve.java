@@ -4,8 +4,8 @@ import com.pathplanner.lib.auto.AutoBuilder;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
@@ -14,11 +14,12 @@ import frc.trigon.robot.RobotContainer;
 import frc.trigon.robot.constants.RobotConstants;
 import frc.trigon.robot.subsystems.MotorSubsystem;
 import frc.trigon.robot.utilities.AllianceUtilities;
+import frc.trigon.robot.utilities.LoopTimer;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class Swerve extends MotorSubsystem {
     private static final Swerve INSTANCE = new Swerve();
@@ -26,7 +27,12 @@ public class Swerve extends MotorSubsystem {
     private final SwerveIO swerveIO = SwerveIO.generateIO();
     private final SwerveConstants constants = SwerveConstants.generateConstants();
     private final SwerveModuleIO[] modulesIO;
-    private final List<Double> previousLoopTimestamps = new ArrayList<>();
+    private final Queue<SwerveOdometrySample> odometrySamples = new ConcurrentLinkedQueue<>();
+    private final HeadingHistory headingHistory = new HeadingHistory(SwerveConstants.HEADING_HISTORY_CAPACITY);
+    private final double[] moduleXLocations, moduleYLocations;
+    private final double[] targetModuleVelocities, targetModuleAnglesRadians;
+    private double discretizedXSpeedMetersPerSecond, discretizedYSpeedMetersPerSecond;
+    private volatile SwerveChassisState chassisState;
 
     public static Swerve getInstance() {
         return INSTANCE;
@@ -34,20 +40,29 @@ public class Swerve extends MotorSubsystem {
 
     private Swerve() {
         modulesIO = getModulesIO();
+        moduleXLocations = new double[modulesIO.length];
+        moduleYLocations = new double[modulesIO.length];
+        targetModuleVelocities = new double[modulesIO.length];
+        targetModuleAnglesRadians = new double[modulesIO.length];
+        configureModuleLocations();
+        chassisState = createInitialChassisState();
         configurePathPlanner();
         constants.getProfiledRotationController().enableContinuousInput(-180, 180);
     }
 
     @Override
     public void periodic() {
+        SwerveSignalsRegistry.refreshAllSignals();
+        SwerveOdometryThread.getInstance().latchSamples();
         swerveIO.updateInputs(swerveInputs);
         Logger.processInputs("Swerve", swerveInputs);
 
         for (SwerveModuleIO currentModule : modulesIO)
             currentModule.periodic();
 
+        queueOdometrySamples();
+        updateChassisState();
         updateNetworkTables();
-        updatePreviousLoopTimestamps();
     }
 
     @Override
@@ -66,18 +81,41 @@ public class Swerve extends MotorSubsystem {
         return constants;
     }
 
-    public SwerveModulePosition[] getModulePositions() {
-        final SwerveModulePosition[] swerveModulePositions = new SwerveModulePosition[modulesIO.length];
+    /**
+     * @return the snapshot of the swerve's state, that was calculated in the current loop
+     */
+    public SwerveChassisState getChassisState() {
+        return chassisState;
+    }
 
-        for (int i = 0; i < modulesIO.length; i++)
-            swerveModulePositions[i] = modulesIO[i].getCurrentPosition();
+    public SwerveModulePosition[] getModulePositions() {
+        return chassisState.modulePositions;
+    }
 
-        return swerveModulePositions;
+    /**
+     * Polls the oldest odometry sample that wasn't polled yet.
+     * The samples are queued every loop, and should be polled by the pose estimator in order to apply each one with its own timestamp.
+     *
+     * @return the oldest odometry sample, or null if there are no new samples
+     */
+    public SwerveOdometrySample pollOdometrySample() {
+        return odometrySamples.poll();
     }
 
     public Rotation2d getHeading() {
-        final double inputtedHeading = MathUtil.inputModulus(swerveInputs.gyroYawDegrees, -180, 180);
-        return Rotation2d.fromDegrees(inputtedHeading);
+        return chassisState.heading;
+    }
+
+    /**
+     * Returns the gyro's heading at the given timestamp, interpolated from the odometry samples.
+     * This should be used to compare the heading against measurements that were taken in the past, such as camera frames.
+     * If the timestamp is older than the history, the oldest saved heading is returned.
+     *
+     * @param timestampSeconds the FPGA timestamp, in seconds
+     * @return the heading at the timestamp
+     */
+    public Rotation2d getHeadingAt(double timestampSeconds) {
+        return new Rotation2d(headingHistory.getHeadingRadiansAt(timestampSeconds, chassisState.heading.getRadians()));
     }
 
     public void setHeading(Rotation2d heading) {
@@ -85,7 +123,7 @@ public class Swerve extends MotorSubsystem {
     }
 
     public ChassisSpeeds getSelfRelativeVelocity() {
-        return constants.getKinematics().toChassisSpeeds(getModuleStates());
+        return chassisState.selfRelativeVelocity;
     }
 
     public double getGyroZAcceleration() {
@@ -127,32 +165,32 @@ public class Swerve extends MotorSubsystem {
     }
 
     public boolean atXAxisPosition(double xAxisPosition) {
-        final double currentXAxisVelocity = getFieldRelativeVelocity().vxMetersPerSecond;
-        return atTranslationPosition(RobotContainer.POSE_ESTIMATOR.getCurrentPose().toBlueAlliancePose().getX(), xAxisPosition, currentXAxisVelocity);
+        final double currentXAxisVelocity = chassisState.fieldRelativeVelocity.vxMetersPerSecond;
+        return atTranslationPosition(chassisState.blueAlliancePose.getX(), xAxisPosition, currentXAxisVelocity);
     }
 
     public boolean atYAxisPosition(double yAxisPosition) {
-        final double currentYAxisVelocity = getFieldRelativeVelocity().vyMetersPerSecond;
-        return atTranslationPosition(RobotContainer.POSE_ESTIMATOR.getCurrentPose().toBlueAlliancePose().getY(), yAxisPosition, currentYAxisVelocity);
+        final double currentYAxisVelocity = chassisState.fieldRelativeVelocity.vyMetersPerSecond;
+        return atTranslationPosition(chassisState.blueAlliancePose.getY(), yAxisPosition, currentYAxisVelocity);
     }
 
     public boolean atAngle(Rotation2d angle) {
-        return Math.abs(angle.getDegrees() - RobotContainer.POSE_ESTIMATOR.getCurrentPose().toBlueAlliancePose().getRotation().getDegrees()) < SwerveConstants.ROTATION_TOLERANCE_DEGREES &&
-                Math.abs(getSelfRelativeVelocity().omegaRadiansPerSecond) < SwerveConstants.ROTATION_VELOCITY_TOLERANCE;
+        return Math.abs(angle.getDegrees() - chassisState.blueAlliancePose.getRotation().getDegrees()) < SwerveConstants.ROTATION_TOLERANCE_DEGREES &&
+                Math.abs(chassisState.selfRelativeVelocity.omegaRadiansPerSecond) < SwerveConstants.ROTATION_VELOCITY_TOLERANCE;
     }
 
     /**
      * Locks the swerve, so it'll be hard to move it. This will make the modules look in the middle of a robot in an "x" shape.
      */
     void lockSwerve() {
-        final SwerveModuleState
-                right = new SwerveModuleState(0, Rotation2d.fromDegrees(-45)),
-                left = new SwerveModuleState(0, Rotation2d.fromDegrees(45));
+        final double
+                rightAngleRadians = Units.degreesToRadians(-45),
+                leftAngleRadians = Units.degreesToRadians(45);
 
-        modulesIO[0].setTargetState(left);
-        modulesIO[1].setTargetState(right);
-        modulesIO[2].setTargetState(right);
-        modulesIO[3].setTargetState(left);
+        modulesIO[0].setTargetState(0, leftAngleRadians);
+        modulesIO[1].setTargetState(0, rightAngleRadians);
+        modulesIO[2].setTargetState(0, rightAngleRadians);
+        modulesIO[3].setTargetState(0, leftAngleRadians);
     }
 
     /**
@@ -162,12 +200,11 @@ public class Swerve extends MotorSubsystem {
      */
     void pidToPose(Pose2d targetPose) {
         final Pose2d currentPose = RobotContainer.POSE_ESTIMATOR.getCurrentPose().toBlueAlliancePose();
-        final ChassisSpeeds targetFieldRelativeSpeeds = new ChassisSpeeds(
+        fieldRelativeDriveWithSpeeds(
                 constants.getTranslationsController().calculate(currentPose.getX(), targetPose.getX()),
                 constants.getTranslationsController().calculate(currentPose.getY(), targetPose.getY()),
                 calculateProfiledAngleSpeedToTargetAngle(targetPose.getRotation())
         );
-        selfRelativeDrive(fieldRelativeSpeedsToSelfRelativeSpeeds(targetFieldRelativeSpeeds));
     }
 
     void initializeDrive(boolean closedLoop) {
@@ -193,10 +230,11 @@ public class Swerve extends MotorSubsystem {
      */
     void fieldRelativeDrive(double xPower, double yPower, Rotation2d targetAngle) {
         targetAngle = AllianceUtilities.toMirroredAllianceRotation(targetAngle);
-        final ChassisSpeeds speeds = selfRelativeSpeedsFromFieldRelativePowers(xPower, yPower, 0);
-        speeds.omegaRadiansPerSecond = calculateProfiledAngleSpeedToTargetAngle(targetAngle);
-
-        selfRelativeDrive(speeds);
+        fieldRelativeDriveWithSpeeds(
+                translationPowerToSpeed(xPower),
+                translationPowerToSpeed(yPower),
+                calculateProfiledAngleSpeedToTargetAngle(targetAngle)
+        );
     }
 
     /**
@@ -207,8 +245,7 @@ public class Swerve extends MotorSubsystem {
      * @param thetaPower the theta power
      */
     void fieldRelativeDrive(double xPower, double yPower, double thetaPower) {
-        final ChassisSpeeds speeds = selfRelativeSpeedsFromFieldRelativePowers(xPower, yPower, thetaPower);
-        selfRelativeDrive(speeds);
+        fieldRelativeDriveWithSpeeds(translationPowerToSpeed(xPower), translationPowerToSpeed(yPower), rotationPowerToSpeed(thetaPower));
     }
 
     /**
@@ -219,69 +256,154 @@ public class Swerve extends MotorSubsystem {
      * @param thetaPower the theta power
      */
     void selfRelativeDrive(double xPower, double yPower, double thetaPower) {
-        final ChassisSpeeds speeds = powersToSpeeds(xPower, yPower, thetaPower);
-        selfRelativeDrive(speeds);
+        selfRelativeDriveWithSpeeds(translationPowerToSpeed(xPower), translationPowerToSpeed(yPower), rotationPowerToSpeed(thetaPower));
     }
 
     private void selfRelativeDrive(ChassisSpeeds chassisSpeeds) {
-        chassisSpeeds = discretize(chassisSpeeds);
-        if (isStill(chassisSpeeds)) {
+        selfRelativeDriveWithSpeeds(chassisSpeeds.vxMetersPerSecond, chassisSpeeds.vyMetersPerSecond, chassisSpeeds.omegaRadiansPerSecond);
+    }
+
+    private void fieldRelativeDriveWithSpeeds(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double thetaSpeedRadiansPerSecond) {
+        final Rotation2d currentAngle = RobotContainer.POSE_ESTIMATOR.getCurrentPose().toAlliancePose().getRotation();
+        final double
+                selfRelativeXSpeedMetersPerSecond = xSpeedMetersPerSecond * currentAngle.getCos() + ySpeedMetersPerSecond * currentAngle.getSin(),
+                selfRelativeYSpeedMetersPerSecond = -xSpeedMetersPerSecond * currentAngle.getSin() + ySpeedMetersPerSecond * currentAngle.getCos();
+
+        selfRelativeDriveWithSpeeds(selfRelativeXSpeedMetersPerSecond, selfRelativeYSpeedMetersPerSecond, thetaSpeedRadiansPerSecond);
+    }
+
+    /**
+     * Drives the swerve with the given speeds, relative to the robot's frame of reference.
+     * This calculates the module states in place, using preallocated buffers, so it won't create any objects.
+     *
+     * @param xSpeedMetersPerSecond      the x speed, in meters per second
+     * @param ySpeedMetersPerSecond      the y speed, in meters per second
+     * @param thetaSpeedRadiansPerSecond the theta speed, in radians per second
+     */
+    private void selfRelativeDriveWithSpeeds(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double thetaSpeedRadiansPerSecond) {
+        discretize(xSpeedMetersPerSecond, ySpeedMetersPerSecond, thetaSpeedRadiansPerSecond);
+        if (isStill(discretizedXSpeedMetersPerSecond, discretizedYSpeedMetersPerSecond, thetaSpeedRadiansPerSecond)) {
             stop();
             return;
         }
 
-        final SwerveModuleState[] swerveModuleStates = constants.getKinematics().toSwerveModuleStates(chassisSpeeds);
-        setTargetModuleStates(swerveModuleStates);
+        calculateTargetModuleStates(discretizedXSpeedMetersPerSecond, discretizedYSpeedMetersPerSecond, thetaSpeedRadiansPerSecond);
+        desaturateTargetModuleVelocities();
+        for (int i = 0; i < modulesIO.length; i++)
+            modulesIO[i].setTargetState(targetModuleVelocities[i], targetModuleAnglesRadians[i]);
     }
 
-    private void setTargetModuleStates(SwerveModuleState[] swerveModuleStates) {
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, constants.getMaxSpeedMetersPerSecond());
-        for (int i = 0; i < modulesIO.length; i++)
-            modulesIO[i].setTargetState(swerveModuleStates[i]);
+    private void calculateTargetModuleStates(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double thetaSpeedRadiansPerSecond) {
+        for (int i = 0; i < modulesIO.length; i++) {
+            final double
+                    moduleXSpeedMetersPerSecond = xSpeedMetersPerSecond - thetaSpeedRadiansPerSecond * moduleYLocations[i],
+                    moduleYSpeedMetersPerSecond = ySpeedMetersPerSecond + thetaSpeedRadiansPerSecond * moduleXLocations[i];
+
+            targetModuleVelocities[i] = Math.hypot(moduleXSpeedMetersPerSecond, moduleYSpeedMetersPerSecond);
+            targetModuleAnglesRadians[i] = Math.atan2(moduleYSpeedMetersPerSecond, moduleXSpeedMetersPerSecond);
+        }
+    }
+
+    private void desaturateTargetModuleVelocities() {
+        double highestVelocity = 0;
+        for (double currentVelocity : targetModuleVelocities)
+            highestVelocity = Math.max(highestVelocity, Math.abs(currentVelocity));
+
+        if (highestVelocity <= constants.getMaxSpeedMetersPerSecond())
+            return;
+
+        final double scalar = constants.getMaxSpeedMetersPerSecond() / highestVelocity;
+        for (int i = 0; i < targetModuleVelocities.length; i++)
+            targetModuleVelocities[i] *= scalar;
     }
 
     /**
      * When the robot drives while rotating it skews a bit to the side.
-     * This should fix the chassis speeds, so they won't make the robot skew while rotating.
+     * This should fix the translation speeds, so they won't make the robot skew while rotating.
+     * This is the same calculation as {@link ChassisSpeeds#discretize(ChassisSpeeds, double)}, done in place.
+     * The fixed speeds are stored in the discretized speed fields.
      *
-     * @param chassisSpeeds the chassis speeds to fix skewing for
-     * @return the fixed speeds
+     * @param xSpeedMetersPerSecond      the x speed to fix skewing for
+     * @param ySpeedMetersPerSecond      the y speed to fix skewing for
+     * @param thetaSpeedRadiansPerSecond the theta speed
      */
-    private ChassisSpeeds discretize(ChassisSpeeds chassisSpeeds) {
-        return ChassisSpeeds.discretize(chassisSpeeds, getAverageLoopTime());
+    private void discretize(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double thetaSpeedRadiansPerSecond) {
+        final double loopTimeSeconds = LoopTimer.getAverageLoopTimeSeconds();
+        final double thetaDelta = thetaSpeedRadiansPerSecond * loopTimeSeconds;
+        final double halfThetaDelta = thetaDelta / 2;
+        final double cosineMinusOne = Math.cos(thetaDelta) - 1;
+        final double halfThetaByTanOfHalfThetaDelta = Math.abs(cosineMinusOne) < 1e-9 ?
+                1 - thetaDelta * thetaDelta / 12 :
+                -(halfThetaDelta * Math.sin(thetaDelta)) / cosineMinusOne;
+
+        discretizedXSpeedMetersPerSecond = xSpeedMetersPerSecond * halfThetaByTanOfHalfThetaDelta + ySpeedMetersPerSecond * halfThetaDelta;
+        discretizedYSpeedMetersPerSecond = ySpeedMetersPerSecond * halfThetaByTanOfHalfThetaDelta - xSpeedMetersPerSecond * halfThetaDelta;
+    }
+
+    private void queueOdometrySamples() {
+        final int samplesCount = getOdometrySamplesCount();
+        if (samplesCount == 0)
+            headingHistory.addSample(Timer.getFPGATimestamp(), Units.degreesToRadians(swerveInputs.gyroYawDegrees));
+
+        for (int i = 0; i < samplesCount; i++) {
+            final SwerveModulePosition[] modulePositions = new SwerveModulePosition[modulesIO.length];
+            for (int j = 0; j < modulesIO.length; j++)
+                modulePositions[j] = modulesIO[j].getOdometryPosition(i);
+
+            headingHistory.addSample(swerveInputs.odometryUpdatesTimestamp[i], Units.degreesToRadians(swerveInputs.odometryUpdatesYawDegrees[i]));
+            odometrySamples.offer(new SwerveOdometrySample(
+                    swerveInputs.odometryUpdatesTimestamp[i],
+                    Rotation2d.fromDegrees(swerveInputs.odometryUpdatesYawDegrees[i]),
+                    modulePositions
+            ));
+        }
     }
 
-    private double getAverageLoopTime() {
-        if (previousLoopTimestamps.size() < SwerveConstants.MAX_SAVED_PREVIOUS_LOOP_TIMESTAMPS)
-            return RobotConstants.PERIODIC_TIME_SECONDS;
+    private int getOdometrySamplesCount() {
+        int samplesCount = Math.min(swerveInputs.odometryUpdatesTimestamp.length, swerveInputs.odometryUpdatesYawDegrees.length);
 
-        double differenceSum = 0;
-        double lastTimestamp = -1;
-
-        for (double currentTimestamp : previousLoopTimestamps) {
-            if (lastTimestamp == -1) {
-                lastTimestamp = currentTimestamp;
-                continue;
-            }
-            differenceSum += currentTimestamp - lastTimestamp;
-            lastTimestamp = currentTimestamp;
-        }
+        for (SwerveModuleIO currentModule : modulesIO)
+            samplesCount = Math.min(samplesCount, currentModule.getOdometrySamplesCount());
 
-        return differenceSum / (previousLoopTimestamps.size() - 1);
+        return samplesCount;
     }
 
-    private void updatePreviousLoopTimestamps() {
-        if (previousLoopTimestamps.size() < SwerveConstants.MAX_SAVED_PREVIOUS_LOOP_TIMESTAMPS) {
-            previousLoopTimestamps.add(Timer.getFPGATimestamp());
-            return;
+    /**
+     * Calculates the snapshot of the swerve's state for the current loop.
+     * This should be called once every loop, after all the inputs were updated.
+     */
+    private void updateChassisState() {
+        final SwerveModuleState[] moduleStates = new SwerveModuleState[modulesIO.length];
+        final SwerveModulePosition[] modulePositions = new SwerveModulePosition[modulesIO.length];
+
+        for (int i = 0; i < modulesIO.length; i++) {
+            moduleStates[i] = modulesIO[i].getCurrentState();
+            modulePositions[i] = modulesIO[i].getCurrentPosition();
         }
 
-        previousLoopTimestamps.remove(0);
-        previousLoopTimestamps.add(Timer.getFPGATimestamp());
+        final ChassisSpeeds selfRelativeVelocity = constants.getKinematics().toChassisSpeeds(moduleStates);
+        final AllianceUtilities.AlliancePose2d currentPose = RobotContainer.POSE_ESTIMATOR.getCurrentPose();
+        final ChassisSpeeds fieldRelativeVelocity = ChassisSpeeds.fromRobotRelativeSpeeds(selfRelativeVelocity, currentPose.toAlliancePose().getRotation());
+        final Rotation2d heading = Rotation2d.fromDegrees(MathUtil.inputModulus(swerveInputs.gyroYawDegrees, -180, 180));
+
+        chassisState = new SwerveChassisState(moduleStates, modulePositions, selfRelativeVelocity, fieldRelativeVelocity, heading, currentPose.toBlueAlliancePose());
     }
 
-    private ChassisSpeeds getFieldRelativeVelocity() {
-        return ChassisSpeeds.fromFieldRelativeSpeeds(getSelfRelativeVelocity(), RobotContainer.POSE_ESTIMATOR.getCurrentPose().toAlliancePose().getRotation());
+    /**
+     * Creates the snapshot that's used before the first loop. The pose estimator doesn't exist yet at this point, so the pose and velocities are zeroed.
+     *
+     * @return the initial snapshot
+     */
+    private SwerveChassisState createInitialChassisState() {
+        final SwerveModuleState[] moduleStates = new SwerveModuleState[modulesIO.length];
+        final SwerveModulePosition[] modulePositions = new SwerveModulePosition[modulesIO.length];
+
+        for (int i = 0; i < modulesIO.length; i++) {
+            moduleStates[i] = new SwerveModuleState();
+            modulePositions[i] = new SwerveModulePosition();
+        }
+
+        return new SwerveChassisState(moduleStates, modulePositions, new ChassisSpeeds(), new ChassisSpeeds(), new Rotation2d(), new Pose2d());
     }
 
     private void configurePathPlanner() {
@@ -308,38 +430,25 @@ public class Swerve extends MotorSubsystem {
         return i;
     }
 
-    private ChassisSpeeds selfRelativeSpeedsFromFieldRelativePowers(double xPower, double yPower, double thetaPower) {
-        final ChassisSpeeds fieldRelativeSpeeds = powersToSpeeds(xPower, yPower, thetaPower);
-        return fieldRelativeSpeedsToSelfRelativeSpeeds(fieldRelativeSpeeds);
-    }
-
-    private ChassisSpeeds fieldRelativeSpeedsToSelfRelativeSpeeds(ChassisSpeeds fieldRelativeSpeeds) {
-        Rotation2d currentAngle = RobotContainer.POSE_ESTIMATOR.getCurrentPose().toAlliancePose().getRotation();
-        return ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds, currentAngle);
+    private double translationPowerToSpeed(double power) {
+        return power * constants.getMaxSpeedMetersPerSecond();
     }
 
-    private ChassisSpeeds powersToSpeeds(double xPower, double yPower, double thetaPower) {
-        return new ChassisSpeeds(
-                xPower * constants.getMaxSpeedMetersPerSecond(),
-                yPower * constants.getMaxSpeedMetersPerSecond(),
-                Math.pow(thetaPower, 2) * Math.signum(thetaPower) * constants.getMaxRotationalSpeedRadiansPerSecond()
-        );
+    private double rotationPowerToSpeed(double power) {
+        return Math.pow(power, 2) * Math.signum(power) * constants.getMaxRotationalSpeedRadiansPerSecond();
     }
 
     private void updateNetworkTables() {
-        Logger.recordOutput("Swerve/Velocity/Rot", getSelfRelativeVelocity().omegaRadiansPerSecond);
-        Logger.recordOutput("Swerve/Velocity/X", getSelfRelativeVelocity().vxMetersPerSecond);
-        Logger.recordOutput("Swerve/Velocity/Y", getSelfRelativeVelocity().vyMetersPerSecond);
+        Logger.recordOutput("Swerve/Velocity/Rot", chassisState.selfRelativeVelocity.omegaRadiansPerSecond);
+        Logger.recordOutput("Swerve/Velocity/X", chassisState.selfRelativeVelocity.vxMetersPerSecond);
+        Logger.recordOutput("Swerve/Velocity/Y", chassisState.selfRelativeVelocity.vyMetersPerSecond);
+        Logger.recordOutput("Swerve/OdometryThread/LastWaitStatus", SwerveOdometryThread.getInstance().getLastWaitStatus().getName());
+        Logger.recordOutput("Swerve/OdometryThread/FailedWaitsCount", SwerveOdometryThread.getInstance().getFailedWaitsCount());
     }
 
     @AutoLogOutput(key = "Swerve/CurrentStates")
     private SwerveModuleState[] getModuleStates() {
-        final SwerveModuleState[] states = new SwerveModuleState[modulesIO.length];
-
-        for (int i = 0; i < modulesIO.length; i++)
-            states[i] = modulesIO[i].getCurrentState();
-
-        return states;
+        return chassisState.moduleStates;
     }
 
     @AutoLogOutput(key = "Swerve/TargetStates")
@@ -353,15 +462,26 @@ public class Swerve extends MotorSubsystem {
     }
 
     /**
-     * Returns whether the given chassis speeds are considered to be "still" by the swerve neutral deadband.
+     * Returns whether the given speeds are considered to be "still" by the swerve neutral deadband.
      *
-     * @param chassisSpeeds the chassis speeds to check
-     * @return true if the chassis speeds are considered to be "still"
+     * @param xSpeedMetersPerSecond      the x speed to check
+     * @param ySpeedMetersPerSecond      the y speed to check
+     * @param thetaSpeedRadiansPerSecond the theta speed to check
+     * @return true if the speeds are considered to be "still"
      */
-    private boolean isStill(ChassisSpeeds chassisSpeeds) {
-        return Math.abs(chassisSpeeds.vxMetersPerSecond) <= SwerveConstants.DRIVE_NEUTRAL_DEADBAND &&
-                Math.abs(chassisSpeeds.vyMetersPerSecond) <= SwerveConstants.DRIVE_NEUTRAL_DEADBAND &&
-                Math.abs(chassisSpeeds.omegaRadiansPerSecond) <= SwerveConstants.ROTATION_NEUTRAL_DEADBAND;
+    private boolean isStill(double xSpeedMetersPerSecond, double ySpeedMetersPerSecond, double thetaSpeedRadiansPerSecond) {
+        return Math.abs(xSpeedMetersPerSecond) <= SwerveConstants.DRIVE_NEUTRAL_DEADBAND &&
+                Math.abs(ySpeedMetersPerSecond) <= SwerveConstants.DRIVE_NEUTRAL_DEADBAND &&
+                Math.abs(thetaSpeedRadiansPerSecond) <= SwerveConstants.ROTATION_NEUTRAL_DEADBAND;
+    }
+
+    private void configureModuleLocations() {
+        final Translation2d[] moduleLocations = constants.getModuleLocations();
+
+        for (int i = 0; i < modulesIO.length; i++) {
+            moduleXLocations[i] = moduleLocations[i].getX();
+            moduleYLocations[i] = moduleLocations[i].getY();
+        }
     }
 
     private SwerveModuleIO[] getModulesIO() {
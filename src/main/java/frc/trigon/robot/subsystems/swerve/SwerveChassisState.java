@@ -0,0 +1,48 @@
+package frc.trigon.robot.subsystems.swerve;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * An immutable snapshot of the swerve's state, calculated once at every swerve periodic.
+ * Every getter and command reads from the same snapshot, so all the consumers in a single loop will see the same state.
+ * The arrays are shared between all the consumers, and should not be modified.
+ */
+public class SwerveChassisState {
+    /**
+     * The current states of the modules
+     */
+    public final SwerveModuleState[] moduleStates;
+    /**
+     * The current positions of the modules
+     */
+    public final SwerveModulePosition[] modulePositions;
+    /**
+     * The velocity of the robot, relative to the robot's frame of reference
+     */
+    public final ChassisSpeeds selfRelativeVelocity;
+    /**
+     * The velocity of the robot, relative to the alliance's frame of reference
+     */
+    public final ChassisSpeeds fieldRelativeVelocity;
+    /**
+     * The gyro heading, between -180 and 180 degrees
+     */
+    public final Rotation2d heading;
+    /**
+     * The estimated pose of the robot, relative to the blue alliance driver station's right corner
+     */
+    public final Pose2d blueAlliancePose;
+
+    SwerveChassisState(SwerveModuleState[] moduleStates, SwerveModulePosition[] modulePositions, ChassisSpeeds selfRelativeVelocity, ChassisSpeeds fieldRelativeVelocity, Rotation2d heading, Pose2d blueAlliancePose) {
+        this.moduleStates = moduleStates;
+        this.modulePositions = modulePositions;
+        this.selfRelativeVelocity = selfRelativeVelocity;
+        this.fieldRelativeVelocity = fieldRelativeVelocity;
+        this.heading = heading;
+        this.blueAlliancePose = blueAlliancePose;
+    }
+}
@@ -9,7 +9,9 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.*;
 import frc.trigon.robot.RobotContainer;
+import frc.trigon.robot.components.DriverInputs;
 import frc.trigon.robot.utilities.AllianceUtilities;
+import frc.trigon.robot.utilities.DriveLatencyTracker;
 import frc.trigon.robot.utilities.InitExecuteCommand;
 
 import java.util.List;
@@ -118,6 +120,48 @@ public class SwerveCommands {
         );
     }
 
+    /**
+     * Creates a command that drives the swerve with powers from the driver's inputs, relative to the field's frame of reference, in open loop mode.
+     * The command is marked as fed by the driver, so its loops are measured by the {@link DriveLatencyTracker}.
+     *
+     * @param driverInputs  the driver's inputs that the powers are calculated from
+     * @param xSupplier     the target forwards power
+     * @param ySupplier     the target leftwards power
+     * @param thetaSupplier the target theta power, CCW+
+     * @return the command
+     */
+    public static Command getDriverOpenLoopFieldRelativeDriveCommand(DriverInputs driverInputs, DoubleSupplier xSupplier, DoubleSupplier ySupplier, DoubleSupplier thetaSupplier) {
+        return new InitExecuteCommand(
+                () -> SWERVE.initializeDrive(false),
+                () -> {
+                    DriveLatencyTracker.markDriveCommanded(driverInputs.getSampleTimestampMicroseconds());
+                    SWERVE.fieldRelativeDrive(xSupplier.getAsDouble(), ySupplier.getAsDouble(), thetaSupplier.getAsDouble());
+                },
+                SWERVE
+        );
+    }
+
+    /**
+     * Creates a command that drives the swerve with powers from the driver's inputs, relative to the robot's frame of reference, in open loop mode.
+     * The command is marked as fed by the driver, so its loops are measured by the {@link DriveLatencyTracker}.
+     *
+     * @param driverInputs  the driver's inputs that the powers are calculated from
+     * @param xSupplier     the target forwards power
+     * @param ySupplier     the target leftwards power
+     * @param thetaSupplier the target theta power, CCW+
+     * @return the command
+     */
+    public static Command getDriverOpenLoopSelfRelativeDriveCommand(DriverInputs driverInputs, DoubleSupplier xSupplier, DoubleSupplier ySupplier, DoubleSupplier thetaSupplier) {
+        return new InitExecuteCommand(
+                () -> SWERVE.initializeDrive(false),
+                () -> {
+                    DriveLatencyTracker.markDriveCommanded(driverInputs.getSampleTimestampMicroseconds());
+                    SWERVE.selfRelativeDrive(xSupplier.getAsDouble(), ySupplier.getAsDouble(), thetaSupplier.getAsDouble());
+                },
+                SWERVE
+        );
+    }
+
     public static Command getDriveToPoseCommand(Supplier<AllianceUtilities.AlliancePose2d> targetPose, PathConstraints constraints) {
         return new DeferredCommand(() -> getCurrentDriveToPoseCommand(targetPose.get(), constraints), Set.of(SWERVE));
     }
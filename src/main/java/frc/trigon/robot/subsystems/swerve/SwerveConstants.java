@@ -3,6 +3,7 @@ package frc.trigon.robot.subsystems.swerve;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import frc.trigon.robot.constants.RobotConstants;
 import frc.trigon.robot.subsystems.swerve.placeholderswere.PLACEHOLDERSwerveConstants;
@@ -10,7 +11,6 @@ import frc.trigon.robot.subsystems.swerve.simulationswerve.SimulationSwerveConst
 import frc.trigon.robot.subsystems.swerve.trihardswerve.TrihardSwerveConstants;
 
 public abstract class SwerveConstants {
-    static final int MAX_SAVED_PREVIOUS_LOOP_TIMESTAMPS = 10;
     static final double
             TRANSLATION_TOLERANCE_METERS = 0.01,
             ROTATION_TOLERANCE_DEGREES = 1,
@@ -19,6 +19,8 @@ public abstract class SwerveConstants {
     static final double
             DRIVE_NEUTRAL_DEADBAND = 0.2,
             ROTATION_NEUTRAL_DEADBAND = 0.2;
+    private static final double HEADING_HISTORY_DURATION_SECONDS = 2;
+    static final int HEADING_HISTORY_CAPACITY = (int) (HEADING_HISTORY_DURATION_SECONDS * SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
 
     static SwerveConstants generateConstants() {
         if (RobotConstants.ROBOT_TYPE == RobotConstants.RobotType.TRIHARD)
@@ -30,6 +32,11 @@ public abstract class SwerveConstants {
 
     public abstract SwerveDriveKinematics getKinematics();
 
+    /**
+     * @return the locations of the modules relative to the center of the robot, in the same order as the modules IO
+     */
+    protected abstract Translation2d[] getModuleLocations();
+
     /**
      * @return the swerve's robot side length in meters, (not including the bumpers)
      */
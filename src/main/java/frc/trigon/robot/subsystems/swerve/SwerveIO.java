@@ -34,5 +34,8 @@ public class SwerveIO {
         public double accelerationX = 0;
         public double accelerationY = 0;
         public double accelerationZ = 0;
+
+        public double[] odometryUpdatesYawDegrees = new double[0];
+        public double[] odometryUpdatesTimestamp = new double[0];
     }
 }
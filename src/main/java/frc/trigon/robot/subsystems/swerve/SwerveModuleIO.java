@@ -1,9 +1,12 @@
 package frc.trigon.robot.subsystems.swerve;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.util.Units;
 import frc.trigon.robot.utilities.Conversions;
+import frc.trigon.robot.utilities.DriveLatencyTracker;
 import org.littletonrobotics.junction.AutoLog;
 import org.littletonrobotics.junction.Logger;
 
@@ -11,7 +14,7 @@ public class SwerveModuleIO {
     private final SwerveModuleInputsAutoLogged swerveModuleInputs = new SwerveModuleInputsAutoLogged();
     private final String name;
     private boolean driveMotorClosedLoop = false;
-    private SwerveModuleState targetState = new SwerveModuleState();
+    private double targetVelocityMetersPerSecond = 0, targetAngleRadians = 0;
 
     public SwerveModuleIO(String name) {
         this.name = name;
@@ -30,9 +33,28 @@ public class SwerveModuleIO {
     }
 
     public void setTargetState(SwerveModuleState targetState) {
-        this.targetState = SwerveModuleState.optimize(targetState, getCurrentAngle());
-        setTargetAngle(this.targetState.angle);
-        setTargetVelocity(this.targetState.speedMetersPerSecond, this.targetState.angle);
+        setTargetState(targetState.speedMetersPerSecond, targetState.angle.getRadians());
+    }
+
+    /**
+     * Sets the target state of the module, without creating any objects.
+     * The state will be optimized so the module won't rotate more than 90 degrees.
+     *
+     * @param targetVelocityMetersPerSecond the target velocity, in meters per second
+     * @param targetAngleRadians            the target steer angle, in radians
+     */
+    public void setTargetState(double targetVelocityMetersPerSecond, double targetAngleRadians) {
+        final double currentAngleRadians = getCurrentAngleRadians();
+        if (Math.abs(MathUtil.angleModulus(targetAngleRadians - currentAngleRadians)) > Math.PI / 2) {
+            targetVelocityMetersPerSecond = -targetVelocityMetersPerSecond;
+            targetAngleRadians = MathUtil.angleModulus(targetAngleRadians + Math.PI);
+        }
+
+        this.targetVelocityMetersPerSecond = targetVelocityMetersPerSecond;
+        this.targetAngleRadians = targetAngleRadians;
+        setTargetAngle(Units.radiansToRotations(targetAngleRadians));
+        setTargetVelocity(targetVelocityMetersPerSecond, targetAngleRadians, currentAngleRadians);
+        DriveLatencyTracker.markCanWrite();
     }
 
     protected String getLoggingPath() {
@@ -41,7 +63,7 @@ public class SwerveModuleIO {
 
     protected double velocityToOpenLoopVoltage(double velocityMetersPerSecond, double wheelDiameterMeters, double steerVelocityRotationsPerSecond, double couplingRatio, double maxSpeedRevolutionsPerSecond, double voltageCompensationSaturation) {
         final double velocityRevolutionsPerSecond = Conversions.distanceToRevolutions(velocityMetersPerSecond, wheelDiameterMeters);
-        final double optimizedVelocityRevolutionsPerSecond = removeCouplingFromRevolutions(velocityRevolutionsPerSecond, Rotation2d.fromDegrees(steerVelocityRotationsPerSecond), couplingRatio);
+        final double optimizedVelocityRevolutionsPerSecond = removeCouplingFromRevolutions(velocityRevolutionsPerSecond, Conversions.degreesToRevolutions(steerVelocityRotationsPerSecond), couplingRatio);
         final double power = optimizedVelocityRevolutionsPerSecond / maxSpeedRevolutionsPerSecond;
         return Conversions.compensatedPowerToVoltage(power, voltageCompensationSaturation);
     }
@@ -50,35 +72,56 @@ public class SwerveModuleIO {
      * When the steer motor moves, the drive motor moves as well due to the coupling.
      * This will affect the current position of the drive motor, so we need to remove the coupling from the position.
      *
-     * @param drivePosition the position in revolutions
-     * @param moduleAngle   the angle of the module
+     * @param drivePosition          the position in revolutions
+     * @param moduleAngleRevolutions the angle of the module, in revolutions
      * @return the distance without the coupling
      */
-    protected double removeCouplingFromRevolutions(double drivePosition, Rotation2d moduleAngle, double couplingRatio) {
-        final double coupledAngle = moduleAngle.getRotations() * couplingRatio;
+    protected double removeCouplingFromRevolutions(double drivePosition, double moduleAngleRevolutions, double couplingRatio) {
+        final double coupledAngle = moduleAngleRevolutions * couplingRatio;
         return drivePosition - coupledAngle;
     }
 
     SwerveModulePosition getCurrentPosition() {
-        return new SwerveModulePosition(swerveModuleInputs.driveDistanceMeters, getCurrentAngle());
+        return new SwerveModulePosition(swerveModuleInputs.driveDistanceMeters, Rotation2d.fromDegrees(swerveModuleInputs.steerAngleDegrees));
+    }
+
+    /**
+     * @return the amount of odometry samples that were received in the current loop
+     */
+    int getOdometrySamplesCount() {
+        return Math.min(swerveModuleInputs.odometryUpdatesDriveDistanceMeters.length, swerveModuleInputs.odometryUpdatesSteerAngleDegrees.length);
+    }
+
+    /**
+     * Returns the position of the module at one of the odometry samples that were received in the current loop.
+     *
+     * @param sampleIndex the index of the sample
+     * @return the position of the module at the sample
+     */
+    SwerveModulePosition getOdometryPosition(int sampleIndex) {
+        return new SwerveModulePosition(
+                swerveModuleInputs.odometryUpdatesDriveDistanceMeters[sampleIndex],
+                Rotation2d.fromDegrees(swerveModuleInputs.odometryUpdatesSteerAngleDegrees[sampleIndex])
+        );
     }
 
     SwerveModuleState getCurrentState() {
-        return new SwerveModuleState(swerveModuleInputs.driveVelocityMetersPerSecond, getCurrentAngle());
+        return new SwerveModuleState(swerveModuleInputs.driveVelocityMetersPerSecond, Rotation2d.fromDegrees(swerveModuleInputs.steerAngleDegrees));
     }
 
     SwerveModuleState getTargetState() {
-        return targetState;
+        return new SwerveModuleState(targetVelocityMetersPerSecond, new Rotation2d(targetAngleRadians));
     }
 
     /**
      * Sets the target velocity for the module.
      *
      * @param targetVelocityMetersPerSecond the target velocity, in meters per second
-     * @param targetSteerAngle              the target steer angle, to calculate for skew reduction
+     * @param targetSteerAngleRadians       the target steer angle in radians, to calculate for skew reduction
+     * @param currentSteerAngleRadians      the current steer angle in radians, to calculate for skew reduction
      */
-    private void setTargetVelocity(double targetVelocityMetersPerSecond, Rotation2d targetSteerAngle) {
-        targetVelocityMetersPerSecond = reduceSkew(targetVelocityMetersPerSecond, targetSteerAngle);
+    private void setTargetVelocity(double targetVelocityMetersPerSecond, double targetSteerAngleRadians, double currentSteerAngleRadians) {
+        targetVelocityMetersPerSecond = reduceSkew(targetVelocityMetersPerSecond, targetSteerAngleRadians, currentSteerAngleRadians);
 
         if (driveMotorClosedLoop)
             setTargetClosedLoopVelocity(targetVelocityMetersPerSecond);
@@ -91,17 +134,18 @@ public class SwerveModuleIO {
      * This method will counter that by reducing the target velocity according to the angle motor's error cosine.
      *
      * @param targetVelocityMetersPerSecond the target velocity, in meters per second
-     * @param targetSteerAngle              the target steer angle
+     * @param targetSteerAngleRadians       the target steer angle, in radians
+     * @param currentSteerAngleRadians      the current steer angle, in radians
      * @return the reduced target velocity in revolutions per second
      */
-    private double reduceSkew(double targetVelocityMetersPerSecond, Rotation2d targetSteerAngle) {
-        final double closedLoopError = targetSteerAngle.getRadians() - getCurrentAngle().getRadians();
+    private double reduceSkew(double targetVelocityMetersPerSecond, double targetSteerAngleRadians, double currentSteerAngleRadians) {
+        final double closedLoopError = targetSteerAngleRadians - currentSteerAngleRadians;
         final double cosineScalar = Math.abs(Math.cos(closedLoopError));
         return targetVelocityMetersPerSecond * cosineScalar;
     }
 
-    private Rotation2d getCurrentAngle() {
-        return Rotation2d.fromDegrees(swerveModuleInputs.steerAngleDegrees);
+    private double getCurrentAngleRadians() {
+        return Units.degreesToRadians(swerveModuleInputs.steerAngleDegrees);
     }
 
     protected void updateInputs(SwerveModuleInputsAutoLogged inputs) {
@@ -113,7 +157,12 @@ public class SwerveModuleIO {
     protected void setTargetClosedLoopVelocity(double targetVelocityMetersPerSecond) {
     }
 
-    protected void setTargetAngle(Rotation2d angle) {
+    /**
+     * Sets the target angle of the steer motor.
+     *
+     * @param targetAngleRevolutions the target angle, in revolutions
+     */
+    protected void setTargetAngle(double targetAngleRevolutions) {
     }
 
     protected void stop() {
@@ -134,5 +183,8 @@ public class SwerveModuleIO {
         public double driveVelocityMetersPerSecond = 0;
         public double driveDistanceMeters = 0;
         public double driveCurrent = 0;
+
+        public double[] odometryUpdatesDriveDistanceMeters = new double[0];
+        public double[] odometryUpdatesSteerAngleDegrees = new double[0];
     }
 }
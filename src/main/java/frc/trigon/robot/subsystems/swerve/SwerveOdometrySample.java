@@ -0,0 +1,28 @@
+package frc.trigon.robot.subsystems.swerve;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+
+/**
+ * A single timestamped odometry sample of the swerve, containing the heading and the module positions at the time the sample was taken.
+ */
+public class SwerveOdometrySample {
+    /**
+     * The FPGA timestamp of the sample, in seconds
+     */
+    public final double timestampSeconds;
+    /**
+     * The gyro heading at the time of the sample
+     */
+    public final Rotation2d heading;
+    /**
+     * The positions of the modules at the time of the sample
+     */
+    public final SwerveModulePosition[] modulePositions;
+
+    SwerveOdometrySample(double timestampSeconds, Rotation2d heading, SwerveModulePosition[] modulePositions) {
+        this.timestampSeconds = timestampSeconds;
+        this.heading = heading;
+        this.modulePositions = modulePositions;
+    }
+}
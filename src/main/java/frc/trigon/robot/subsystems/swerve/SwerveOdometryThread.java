@@ -0,0 +1,155 @@
+package frc.trigon.robot.subsystems.swerve;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread that samples the swerve's odometry signals at a high frequency, using {@link BaseStatusSignal#waitForAll(double, BaseStatusSignal...)}.
+ * Every sample is queued with its CAN timestamp, so the odometry can integrate all the samples rather than only the latest one of each loop.
+ * Signals should be registered before the thread is started, and the samples should be latched once at the start of every swerve periodic.
+ * A sample is queued even when a signal fails to update, with the latest values of the signals, so one faulty device doesn't freeze the odometry.
+ */
+public class SwerveOdometryThread extends Thread {
+    public static final double ODOMETRY_FREQUENCY_HERTZ = 250;
+    private static final double WAIT_FOR_SIGNALS_TIMEOUT_SECONDS = 2 / ODOMETRY_FREQUENCY_HERTZ;
+    private static final SwerveOdometryThread INSTANCE = new SwerveOdometryThread();
+
+    private final Queue<Sample> samplesQueue = new ConcurrentLinkedQueue<>();
+    private final List<StatusSignal<Double>>
+            positionSignals = new ArrayList<>(),
+            velocitySignals = new ArrayList<>();
+    private final List<Sample> latchedSamples = new ArrayList<>();
+    private final AtomicInteger failedWaitsCount = new AtomicInteger();
+    private volatile StatusCode lastWaitStatus = StatusCode.OK;
+    private BaseStatusSignal[] allSignals = new BaseStatusSignal[0];
+
+    public static SwerveOdometryThread getInstance() {
+        return INSTANCE;
+    }
+
+    private SwerveOdometryThread() {
+        setName("SwerveOdometryThread");
+        setDaemon(true);
+    }
+
+    /**
+     * Registers a signal to be sampled by the thread. The signals are cloned, so the thread won't refresh the caller's signals.
+     * This must be called before the thread is started.
+     *
+     * @param positionSignal the signal to sample
+     * @param velocitySignal the slope of the position signal, used for latency compensation
+     * @return the index of the signal's values in the latched samples
+     */
+    public int registerSignal(StatusSignal<Double> positionSignal, StatusSignal<Double> velocitySignal) {
+        positionSignals.add(positionSignal.clone());
+        velocitySignals.add(velocitySignal.clone());
+
+        final List<BaseStatusSignal> signals = new ArrayList<>(positionSignals);
+        signals.addAll(velocitySignals);
+        allSignals = signals.toArray(new BaseStatusSignal[0]);
+
+        return positionSignals.size() - 1;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            final StatusCode waitStatus = BaseStatusSignal.waitForAll(WAIT_FOR_SIGNALS_TIMEOUT_SECONDS, allSignals);
+            samplesQueue.offer(createSample());
+
+            lastWaitStatus = waitStatus;
+            if (!waitStatus.isOK()) {
+                failedWaitsCount.incrementAndGet();
+                Timer.delay(1 / ODOMETRY_FREQUENCY_HERTZ);
+            }
+        }
+    }
+
+    /**
+     * @return the status of the latest wait for the signals
+     */
+    public StatusCode getLastWaitStatus() {
+        return lastWaitStatus;
+    }
+
+    /**
+     * @return the amount of waits for the signals that failed since the thread started, because a signal timed out or errored
+     */
+    public int getFailedWaitsCount() {
+        return failedWaitsCount.get();
+    }
+
+    /**
+     * Moves all the samples that were queued since the last call into the latched samples, which the swerve IO classes read from.
+     * This should be called once at the start of every swerve periodic, so all the IO classes will see the same samples.
+     */
+    public void latchSamples() {
+        latchedSamples.clear();
+
+        Sample currentSample = samplesQueue.poll();
+        while (currentSample != null) {
+            latchedSamples.add(currentSample);
+            currentSample = samplesQueue.poll();
+        }
+    }
+
+    /**
+     * @return the FPGA timestamps of the latched samples, in seconds
+     */
+    public double[] getLatchedTimestamps() {
+        final double[] timestamps = new double[latchedSamples.size()];
+
+        for (int i = 0; i < timestamps.length; i++)
+            timestamps[i] = latchedSamples.get(i).timestampSeconds;
+
+        return timestamps;
+    }
+
+    /**
+     * Returns the latency compensated values of a registered signal, from the latched samples.
+     *
+     * @param signalIndex the index returned when the signal was registered
+     * @return the values of the signal
+     */
+    public double[] getLatchedValues(int signalIndex) {
+        final double[] values = new double[latchedSamples.size()];
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = latchedSamples.get(i).values[signalIndex];
+
+        return values;
+    }
+
+    /**
+     * Creates a sample of the latency compensated values of all the signals.
+     * The values are extrapolated to the present, so the sample is stamped with the current FPGA timestamp rather than with the time the signals were received.
+     *
+     * @return the sample
+     */
+    private Sample createSample() {
+        final double[] values = new double[positionSignals.size()];
+
+        for (int i = 0; i < values.length; i++)
+            values[i] = BaseStatusSignal.getLatencyCompensatedValue(positionSignals.get(i), velocitySignals.get(i));
+
+        return new Sample(Timer.getFPGATimestamp(), values);
+    }
+
+    private static class Sample {
+        private final double timestampSeconds;
+        private final double[] values;
+
+        private Sample(double timestampSeconds, double[] values) {
+            this.timestampSeconds = timestampSeconds;
+            this.values = values;
+        }
+    }
+}
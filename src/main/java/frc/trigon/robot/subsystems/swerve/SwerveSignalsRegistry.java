@@ -0,0 +1,34 @@
+package frc.trigon.robot.subsystems.swerve;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class that holds all the status signals of the swerve, and refreshes all of them in a single batched CAN call.
+ * The signals are refreshed once at the start of every swerve periodic, so the IO classes should only read their cached values.
+ */
+public class SwerveSignalsRegistry {
+    private static final List<BaseStatusSignal> REGISTERED_SIGNALS = new ArrayList<>();
+    private static BaseStatusSignal[] SIGNALS_ARRAY = new BaseStatusSignal[0];
+
+    /**
+     * Registers signals to be refreshed every loop.
+     * All the registered signals must be on the same CAN bus.
+     *
+     * @param signals the signals to register
+     */
+    public static void registerSignals(BaseStatusSignal... signals) {
+        REGISTERED_SIGNALS.addAll(Arrays.asList(signals));
+        SIGNALS_ARRAY = REGISTERED_SIGNALS.toArray(new BaseStatusSignal[0]);
+    }
+
+    static void refreshAllSignals() {
+        if (SIGNALS_ARRAY.length == 0)
+            return;
+
+        BaseStatusSignal.refreshAll(SIGNALS_ARRAY);
+    }
+}
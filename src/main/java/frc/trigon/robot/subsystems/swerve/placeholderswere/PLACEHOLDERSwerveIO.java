@@ -4,17 +4,21 @@ import com.ctre.phoenix6.hardware.Pigeon2;
 import edu.wpi.first.math.geometry.Rotation2d;
 import frc.trigon.robot.subsystems.swerve.SwerveIO;
 import frc.trigon.robot.subsystems.swerve.SwerveInputsAutoLogged;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
 
 public class PLACEHOLDERSwerveIO extends SwerveIO {
     private final Pigeon2 gyro = PLACEHOLDERSwerveConstants.GYRO;
 
     @Override
     protected void updateInputs(SwerveInputsAutoLogged inputs) {
-        inputs.gyroYawDegrees = PLACEHOLDERSwerveConstants.YAW_SIGNAL.refresh().getValue();
-        inputs.gyroPitchDegrees = PLACEHOLDERSwerveConstants.PITCH_SIGNAL.refresh().getValue();
-        inputs.accelerationX = PLACEHOLDERSwerveConstants.X_ACCELERATION_SIGNAL.refresh().getValue();
-        inputs.accelerationY = PLACEHOLDERSwerveConstants.Y_ACCELERATION_SIGNAL.refresh().getValue();
-        inputs.accelerationZ = PLACEHOLDERSwerveConstants.Z_ACCELERATION_SIGNAL.refresh().getValue();
+        inputs.gyroYawDegrees = PLACEHOLDERSwerveConstants.YAW_SIGNAL.getValue();
+        inputs.gyroPitchDegrees = PLACEHOLDERSwerveConstants.PITCH_SIGNAL.getValue();
+        inputs.accelerationX = PLACEHOLDERSwerveConstants.X_ACCELERATION_SIGNAL.getValue();
+        inputs.accelerationY = PLACEHOLDERSwerveConstants.Y_ACCELERATION_SIGNAL.getValue();
+        inputs.accelerationZ = PLACEHOLDERSwerveConstants.Z_ACCELERATION_SIGNAL.getValue();
+
+        inputs.odometryUpdatesYawDegrees = SwerveOdometryThread.getInstance().getLatchedValues(PLACEHOLDERSwerveConstants.YAW_ODOMETRY_INDEX);
+        inputs.odometryUpdatesTimestamp = SwerveOdometryThread.getInstance().getLatchedTimestamps();
     }
 
     @Override
@@ -7,6 +7,8 @@ import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.*;
 import frc.trigon.robot.constants.RobotConstants;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
+import frc.trigon.robot.subsystems.swerve.SwerveSignalsRegistry;
 import frc.trigon.robot.utilities.Conversions;
 
 public class PLACEHOLDERSwerveModuleConstants {
@@ -110,6 +112,7 @@ public class PLACEHOLDERSwerveModuleConstants {
     final CANcoder steerEncoder;
     final double encoderOffset;
     StatusSignal<Double> steerPositionSignal, steerVelocitySignal, driveStatorCurrentSignal, drivePositionSignal, driveVelocitySignal;
+    int steerPositionOdometryIndex = -1, drivePositionOdometryIndex = -1;
 
     private PLACEHOLDERSwerveModuleConstants(TalonFX driveMotor, TalonFX steerMotor, CANcoder steerEncoder, double encoderOffset) {
         this.driveMotor = driveMotor;
@@ -135,9 +138,12 @@ public class PLACEHOLDERSwerveModuleConstants {
 
         steerPositionSignal = steerMotor.getPosition().clone();
         steerVelocitySignal = steerMotor.getVelocity().clone();
-        steerPositionSignal.setUpdateFrequency(250);
-        steerVelocitySignal.setUpdateFrequency(250);
+        steerPositionSignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
+        steerVelocitySignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
         steerEncoder.optimizeBusUtilization();
+
+        SwerveSignalsRegistry.registerSignals(steerPositionSignal, steerVelocitySignal);
+        steerPositionOdometryIndex = SwerveOdometryThread.getInstance().registerSignal(steerPositionSignal, steerVelocitySignal);
     }
 
     private void configureDriveMotor() {
@@ -164,10 +170,13 @@ public class PLACEHOLDERSwerveModuleConstants {
         drivePositionSignal = driveMotor.getPosition().clone();
         driveVelocitySignal = driveMotor.getVelocity().clone();
         driveStatorCurrentSignal = driveMotor.getStatorCurrent().clone();
-        drivePositionSignal.setUpdateFrequency(250);
-        driveVelocitySignal.setUpdateFrequency(250);
+        drivePositionSignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
+        driveVelocitySignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
         driveStatorCurrentSignal.setUpdateFrequency(20);
         driveMotor.optimizeBusUtilization();
+
+        SwerveSignalsRegistry.registerSignals(drivePositionSignal, driveVelocitySignal, driveStatorCurrentSignal);
+        drivePositionOdometryIndex = SwerveOdometryThread.getInstance().registerSignal(drivePositionSignal, driveVelocitySignal);
     }
 
     private void configureSteerMotor() {
@@ -73,6 +73,11 @@ public class SimulationSwerveConstants extends SwerveConstants {
         return KINEMATICS;
     }
 
+    @Override
+    protected Translation2d[] getModuleLocations() {
+        return LOCATIONS;
+    }
+
     @Override
     protected SwerveModuleIO[] getModulesIO() {
         return MODULES_IO;
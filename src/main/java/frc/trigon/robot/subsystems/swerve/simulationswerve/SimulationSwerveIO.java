@@ -2,6 +2,7 @@ package frc.trigon.robot.subsystems.swerve.simulationswerve;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
 import frc.trigon.robot.constants.RobotConstants;
 import frc.trigon.robot.subsystems.swerve.Swerve;
 import frc.trigon.robot.subsystems.swerve.SwerveIO;
@@ -14,6 +15,9 @@ public class SimulationSwerveIO extends SwerveIO {
     protected void updateInputs(SwerveInputsAutoLogged inputs) {
         updateSimulation();
         inputs.gyroYawDegrees = Units.radiansToDegrees(simulationRadians);
+
+        inputs.odometryUpdatesYawDegrees = new double[]{inputs.gyroYawDegrees};
+        inputs.odometryUpdatesTimestamp = new double[]{Timer.getFPGATimestamp()};
     }
 
     private void updateSimulation() {
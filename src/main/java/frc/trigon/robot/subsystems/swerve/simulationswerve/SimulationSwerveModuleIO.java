@@ -2,7 +2,6 @@ package frc.trigon.robot.subsystems.swerve.simulationswerve;
 
 import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
-import edu.wpi.first.math.geometry.Rotation2d;
 import frc.trigon.robot.motorsimulation.SimpleMotorSimulation;
 import frc.trigon.robot.subsystems.swerve.SwerveModuleIO;
 import frc.trigon.robot.subsystems.swerve.SwerveModuleInputsAutoLogged;
@@ -28,6 +27,9 @@ public class SimulationSwerveModuleIO extends SwerveModuleIO {
         inputs.driveDistanceMeters = Conversions.revolutionsToDistance(driveMotor.getPosition(), SimulationSwerveModuleConstants.WHEEL_DIAMETER_METERS);
         inputs.driveVelocityMetersPerSecond = Conversions.revolutionsToDistance(driveMotor.getVelocity(), SimulationSwerveModuleConstants.WHEEL_DIAMETER_METERS);
         inputs.driveCurrent = driveMotor.getCurrent();
+
+        inputs.odometryUpdatesSteerAngleDegrees = new double[]{inputs.steerAngleDegrees};
+        inputs.odometryUpdatesDriveDistanceMeters = new double[]{inputs.driveDistanceMeters};
     }
 
     @Override
@@ -50,8 +52,8 @@ public class SimulationSwerveModuleIO extends SwerveModuleIO {
     }
 
     @Override
-    protected void setTargetAngle(Rotation2d angle) {
-        steerMotor.setControl(steerPositionRequest.withPosition(angle.getRotations()));
+    protected void setTargetAngle(double targetAngleRevolutions) {
+        steerMotor.setControl(steerPositionRequest.withPosition(targetAngleRevolutions));
     }
 
     @Override
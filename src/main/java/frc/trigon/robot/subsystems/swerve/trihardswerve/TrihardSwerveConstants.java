@@ -16,6 +16,8 @@ import edu.wpi.first.math.util.Units;
 import frc.trigon.robot.constants.RobotConstants;
 import frc.trigon.robot.subsystems.swerve.SwerveConstants;
 import frc.trigon.robot.subsystems.swerve.SwerveModuleIO;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
+import frc.trigon.robot.subsystems.swerve.SwerveSignalsRegistry;
 
 public class TrihardSwerveConstants extends SwerveConstants {
     static final double
@@ -86,14 +88,19 @@ public class TrihardSwerveConstants extends SwerveConstants {
 
     static final StatusSignal<Double>
             YAW_SIGNAL = GYRO.getYaw().clone(),
+            YAW_VELOCITY_SIGNAL = GYRO.getAngularVelocityZWorld().clone(),
             PITCH_SIGNAL = GYRO.getPitch().clone(),
             X_ACCELERATION_SIGNAL = GYRO.getAccelerationX().clone(),
             Y_ACCELERATION_SIGNAL = GYRO.getAccelerationY().clone(),
             Z_ACCELERATION_SIGNAL = GYRO.getAccelerationZ().clone();
 
+    static int YAW_ODOMETRY_INDEX = -1;
+
     static {
-        if (!RobotConstants.IS_REPLAY)
+        if (!RobotConstants.IS_REPLAY) {
             configureGyro();
+            SwerveOdometryThread.getInstance().start();
+        }
     }
 
     private static void configureGyro() {
@@ -105,12 +112,17 @@ public class TrihardSwerveConstants extends SwerveConstants {
 
         GYRO.getConfigurator().apply(gyroConfig);
 
-        YAW_SIGNAL.setUpdateFrequency(200);
+        YAW_SIGNAL.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
+        YAW_VELOCITY_SIGNAL.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
         PITCH_SIGNAL.setUpdateFrequency(100);
         X_ACCELERATION_SIGNAL.setUpdateFrequency(50);
         Y_ACCELERATION_SIGNAL.setUpdateFrequency(50);
         Z_ACCELERATION_SIGNAL.setUpdateFrequency(50);
         GYRO.optimizeBusUtilization();
+
+        SwerveSignalsRegistry.registerSignals(YAW_SIGNAL, PITCH_SIGNAL, X_ACCELERATION_SIGNAL, Y_ACCELERATION_SIGNAL, Z_ACCELERATION_SIGNAL);
+
+        YAW_ODOMETRY_INDEX = SwerveOdometryThread.getInstance().registerSignal(YAW_SIGNAL, YAW_VELOCITY_SIGNAL);
     }
 
     @Override
@@ -118,6 +130,11 @@ public class TrihardSwerveConstants extends SwerveConstants {
         return KINEMATICS;
     }
 
+    @Override
+    protected Translation2d[] getModuleLocations() {
+        return LOCATIONS;
+    }
+
     @Override
     protected SwerveModuleIO[] getModulesIO() {
         return MODULES_IO;
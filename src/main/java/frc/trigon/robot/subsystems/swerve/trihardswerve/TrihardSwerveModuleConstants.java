@@ -7,6 +7,8 @@ import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
 import frc.trigon.robot.constants.RobotConstants;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
+import frc.trigon.robot.subsystems.swerve.SwerveSignalsRegistry;
 import frc.trigon.robot.utilities.Commands;
 import frc.trigon.robot.utilities.Conversions;
 
@@ -116,6 +118,7 @@ public class TrihardSwerveModuleConstants {
     final DutyCycleEncoder steerEncoder;
     final double encoderOffset;
     StatusSignal<Double> steerPositionSignal, steerVelocitySignal, driveStatorCurrentSignal, drivePositionSignal, driveVelocitySignal;
+    int steerPositionOdometryIndex = -1, drivePositionOdometryIndex = -1;
 
     private TrihardSwerveModuleConstants(TalonFX driveMotor, TalonFX steerMotor, DutyCycleEncoder steerEncoder, double encoderOffset) {
         this.driveMotor = driveMotor;
@@ -153,10 +156,13 @@ public class TrihardSwerveModuleConstants {
         drivePositionSignal = driveMotor.getPosition().clone();
         driveVelocitySignal = driveMotor.getVelocity().clone();
         driveStatorCurrentSignal = driveMotor.getStatorCurrent().clone();
-        drivePositionSignal.setUpdateFrequency(250);
-        driveVelocitySignal.setUpdateFrequency(250);
+        drivePositionSignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
+        driveVelocitySignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
         driveStatorCurrentSignal.setUpdateFrequency(20);
         driveMotor.optimizeBusUtilization();
+
+        SwerveSignalsRegistry.registerSignals(drivePositionSignal, driveVelocitySignal, driveStatorCurrentSignal);
+        drivePositionOdometryIndex = SwerveOdometryThread.getInstance().registerSignal(drivePositionSignal, driveVelocitySignal);
     }
 
     private void configureSteerMotor() {
@@ -180,10 +186,13 @@ public class TrihardSwerveModuleConstants {
 
         steerPositionSignal = steerMotor.getPosition().clone();
         steerVelocitySignal = steerMotor.getVelocity().clone();
-        steerPositionSignal.setUpdateFrequency(250);
-        steerVelocitySignal.setUpdateFrequency(250);
+        steerPositionSignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
+        steerVelocitySignal.setUpdateFrequency(SwerveOdometryThread.ODOMETRY_FREQUENCY_HERTZ);
         steerMotor.optimizeBusUtilization();
 
+        SwerveSignalsRegistry.registerSignals(steerPositionSignal, steerVelocitySignal);
+        steerPositionOdometryIndex = SwerveOdometryThread.getInstance().registerSignal(steerPositionSignal, steerVelocitySignal);
+
         Commands.getDelayedCommand(ENCODER_UPDATE_TIME_SECONDS, this::setSteerMotorPositionToAbsolute).schedule();
     }
 
@@ -8,9 +8,9 @@ import com.ctre.phoenix6.controls.VelocityTorqueCurrentFOC;
 import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
-import edu.wpi.first.math.geometry.Rotation2d;
 import frc.trigon.robot.subsystems.swerve.SwerveModuleIO;
 import frc.trigon.robot.subsystems.swerve.SwerveModuleInputsAutoLogged;
+import frc.trigon.robot.subsystems.swerve.SwerveOdometryThread;
 import frc.trigon.robot.utilities.Conversions;
 
 public class TrihardSwerveModuleIO extends SwerveModuleIO {
@@ -33,9 +33,11 @@ public class TrihardSwerveModuleIO extends SwerveModuleIO {
     protected void updateInputs(SwerveModuleInputsAutoLogged inputs) {
         inputs.steerAngleDegrees = getAngleDegrees();
 
-        inputs.driveDistanceMeters = getDriveDistance(Rotation2d.fromDegrees(inputs.steerAngleDegrees));
+        inputs.driveDistanceMeters = getDriveDistance(Conversions.degreesToRevolutions(inputs.steerAngleDegrees));
         inputs.driveVelocityMetersPerSecond = Conversions.revolutionsToDistance(moduleConstants.driveVelocitySignal.getValue(), TrihardSwerveModuleConstants.WHEEL_DIAMETER_METERS);
-        inputs.driveCurrent = moduleConstants.driveStatorCurrentSignal.refresh().getValue();
+        inputs.driveCurrent = moduleConstants.driveStatorCurrentSignal.getValue();
+
+        updateOdometryInputs(inputs);
     }
 
     @Override
@@ -55,15 +57,15 @@ public class TrihardSwerveModuleIO extends SwerveModuleIO {
     protected void setTargetClosedLoopVelocity(double targetVelocityMetersPerSecond) {
         final double optimizedVelocityRevolutionsPerSecond = removeCouplingFromRevolutions(
                 targetVelocityMetersPerSecond,
-                Rotation2d.fromDegrees(moduleConstants.steerVelocitySignal.getValue()),
+                Conversions.degreesToRevolutions(moduleConstants.steerVelocitySignal.getValue()),
                 TrihardSwerveModuleConstants.COUPLING_RATIO
         );
         driveMotor.setControl(driveVelocityRequest.withVelocity(optimizedVelocityRevolutionsPerSecond));
     }
 
     @Override
-    protected void setTargetAngle(Rotation2d angle) {
-        steerMotor.setControl(steerPositionRequest.withPosition(angle.getRotations()));
+    protected void setTargetAngle(double targetAngleRevolutions) {
+        steerMotor.setControl(steerPositionRequest.withPosition(targetAngleRevolutions));
     }
 
     @Override
@@ -79,16 +81,28 @@ public class TrihardSwerveModuleIO extends SwerveModuleIO {
         setBrake(steerMotor, neutralModeValue);
     }
 
+    private void updateOdometryInputs(SwerveModuleInputsAutoLogged inputs) {
+        final double[] steerRevolutions = SwerveOdometryThread.getInstance().getLatchedValues(moduleConstants.steerPositionOdometryIndex);
+        final double[] driveRevolutions = SwerveOdometryThread.getInstance().getLatchedValues(moduleConstants.drivePositionOdometryIndex);
+
+        inputs.odometryUpdatesSteerAngleDegrees = new double[steerRevolutions.length];
+        inputs.odometryUpdatesDriveDistanceMeters = new double[driveRevolutions.length];
+        for (int i = 0; i < steerRevolutions.length; i++) {
+            final double revolutionsWithoutCoupling = removeCouplingFromRevolutions(driveRevolutions[i], steerRevolutions[i], TrihardSwerveModuleConstants.COUPLING_RATIO);
+
+            inputs.odometryUpdatesSteerAngleDegrees[i] = Conversions.revolutionsToDegrees(steerRevolutions[i]);
+            inputs.odometryUpdatesDriveDistanceMeters[i] = Conversions.revolutionsToDistance(revolutionsWithoutCoupling, TrihardSwerveModuleConstants.WHEEL_DIAMETER_METERS);
+        }
+    }
+
     private double getAngleDegrees() {
-        BaseStatusSignal.refreshAll(moduleConstants.steerPositionSignal, moduleConstants.steerVelocitySignal);
         final double latencyCompensatedRevolutions = BaseStatusSignal.getLatencyCompensatedValue(moduleConstants.steerPositionSignal, moduleConstants.steerVelocitySignal);
         return Conversions.revolutionsToDegrees(latencyCompensatedRevolutions);
     }
 
-    private double getDriveDistance(Rotation2d moduleAngle) {
-        BaseStatusSignal.refreshAll(moduleConstants.drivePositionSignal, moduleConstants.driveVelocitySignal);
+    private double getDriveDistance(double moduleAngleRevolutions) {
         final double latencyCompensatedRevolutions = BaseStatusSignal.getLatencyCompensatedValue(moduleConstants.drivePositionSignal, moduleConstants.driveVelocitySignal);
-        final double revolutionsWithoutCoupling = removeCouplingFromRevolutions(latencyCompensatedRevolutions, moduleAngle, TrihardSwerveModuleConstants.COUPLING_RATIO);
+        final double revolutionsWithoutCoupling = removeCouplingFromRevolutions(latencyCompensatedRevolutions, moduleAngleRevolutions, TrihardSwerveModuleConstants.COUPLING_RATIO);
         return Conversions.revolutionsToDistance(revolutionsWithoutCoupling, TrihardSwerveModuleConstants.WHEEL_DIAMETER_METERS);
     }
 
@@ -75,19 +75,23 @@ public class AllianceUtilities {
         );
     }
 
+    /**
+     * A pose on the field, that can be viewed relative to the blue alliance, or relative to the current alliance.
+     * The red alliance views are only calculated when they are first requested, and are then stored.
+     * Since a view only depends on whether the current alliance is blue, the stored views stay valid when the alliance changes, and the blue alliance view never checks the alliance at all.
+     */
     public static class AlliancePose2d {
         private final Pose2d blueAlliancePose;
-        private final Pose2d alliancePose;
-        private final Pose2d mirroredAlliancePose;
+        private Pose2d redAlliancePose;
+        private Pose2d redMirroredAlliancePose;
 
-        private AlliancePose2d(Pose2d blueAlliancePose, Pose2d alliancePose, Pose2d mirroredAlliancePose) {
+        private AlliancePose2d(Pose2d blueAlliancePose, Pose2d redAlliancePose) {
             this.blueAlliancePose = blueAlliancePose;
-            this.alliancePose = alliancePose;
-            this.mirroredAlliancePose = mirroredAlliancePose;
+            this.redAlliancePose = redAlliancePose;
         }
 
         public static AlliancePose2d fromBlueAlliancePose(Pose2d blueAlliancePose) {
-            return new AlliancePose2d(blueAlliancePose, AllianceUtilities.toAlliancePose(blueAlliancePose), AllianceUtilities.toMirroredAlliancePose(blueAlliancePose));
+            return new AlliancePose2d(blueAlliancePose, null);
         }
 
         public static AlliancePose2d fromBlueAlliancePose(Translation2d translation, Rotation2d rotation) {
@@ -99,8 +103,9 @@ public class AllianceUtilities {
         }
 
         public static AlliancePose2d fromAlliancePose(Pose2d alliancePose) {
-            final Pose2d blueAlliancePose = AllianceUtilities.toAlliancePose(alliancePose);
-            return new AlliancePose2d(blueAlliancePose, alliancePose, AllianceUtilities.toMirroredAlliancePose(blueAlliancePose));
+            if (isBlueAlliance())
+                return new AlliancePose2d(alliancePose, null);
+            return new AlliancePose2d(switchAlliance(alliancePose), alliancePose);
         }
 
         public static AlliancePose2d fromAlliancePose(Translation2d translation, Rotation2d rotation) {
@@ -116,11 +121,19 @@ public class AllianceUtilities {
         }
 
         public Pose2d toAlliancePose() {
-            return alliancePose;
+            if (isBlueAlliance())
+                return blueAlliancePose;
+            if (redAlliancePose == null)
+                redAlliancePose = switchAlliance(blueAlliancePose);
+            return redAlliancePose;
         }
 
         public Pose2d toMirroredAlliancePose() {
-            return mirroredAlliancePose;
+            if (isBlueAlliance())
+                return blueAlliancePose;
+            if (redMirroredAlliancePose == null)
+                redMirroredAlliancePose = mirror(blueAlliancePose);
+            return redMirroredAlliancePose;
         }
     }
 }
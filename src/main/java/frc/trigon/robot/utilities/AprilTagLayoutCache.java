@@ -0,0 +1,147 @@
+package frc.trigon.robot.utilities;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import frc.trigon.robot.constants.FieldConstants;
+
+/**
+ * An immutable cache of an {@link AprilTagFieldLayout}, that stores the poses of the tags in flat arrays indexed by the tag's ID.
+ * This avoids the hash lookups and optionals of the layout itself, so it can be used in hot loops.
+ * The layout that is currently used by the robot can be swapped at runtime using {@link #setCurrentLayout(AprilTagFieldLayout)}.
+ * Since a cache is never modified after it is created, a consumer should get the current cache once, and use it for the whole calculation.
+ */
+public class AprilTagLayoutCache {
+    private static volatile AprilTagLayoutCache CURRENT = new AprilTagLayoutCache(FieldConstants.APRIL_TAG_FIELD.loadAprilTagLayoutField());
+
+    private final AprilTagFieldLayout layout;
+    private final int[] tagIds;
+    private final Pose3d[] tagPoses;
+    private final Pose2d[] tagPoses2d;
+    private final Transform3d[] tagToFieldTransforms;
+
+    /**
+     * Creates a new cache of a layout.
+     * The origin of the layout should be set before creating the cache, since changes to the layout aren't reflected in the cache.
+     *
+     * @param layout the layout to cache
+     */
+    public AprilTagLayoutCache(AprilTagFieldLayout layout) {
+        this.layout = layout;
+        tagIds = new int[layout.getTags().size()];
+
+        int maximumId = -1;
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = layout.getTags().get(i).ID;
+            maximumId = Math.max(maximumId, tagIds[i]);
+        }
+
+        tagPoses = new Pose3d[maximumId + 1];
+        tagPoses2d = new Pose2d[maximumId + 1];
+        tagToFieldTransforms = new Transform3d[maximumId + 1];
+        for (int id : tagIds) {
+            final Pose3d tagPose = layout.getTagPose(id).orElseThrow();
+            tagPoses[id] = tagPose;
+            tagPoses2d[id] = tagPose.toPose2d();
+            tagToFieldTransforms[id] = new Transform3d(tagPose, new Pose3d());
+        }
+    }
+
+    /**
+     * @return the cache of the layout that is currently used by the robot
+     */
+    public static AprilTagLayoutCache getCurrent() {
+        return CURRENT;
+    }
+
+    /**
+     * Sets the layout that is currently used by the robot.
+     *
+     * @param field the field to load the layout of
+     */
+    public static void setCurrentLayout(AprilTagFields field) {
+        setCurrentLayout(field.loadAprilTagLayoutField());
+    }
+
+    /**
+     * Sets the layout that is currently used by the robot.
+     * The layout can be swapped at any time, consumers will pick up the new layout the next time they get the current cache.
+     *
+     * @param layout the new layout
+     */
+    public static void setCurrentLayout(AprilTagFieldLayout layout) {
+        CURRENT = new AprilTagLayoutCache(layout);
+    }
+
+    /**
+     * Returns a cache of the given layout.
+     * If the layout is the one that is currently used by the robot, the current cache is shared rather than creating a new one.
+     *
+     * @param layout the layout
+     * @return the cache of the layout
+     */
+    public static AprilTagLayoutCache of(AprilTagFieldLayout layout) {
+        final AprilTagLayoutCache current = CURRENT;
+        if (current.layout == layout)
+            return current;
+        return new AprilTagLayoutCache(layout);
+    }
+
+    /**
+     * @return the layout that this cache was created from
+     */
+    public AprilTagFieldLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return the amount of tags in the layout
+     */
+    public int getTagCount() {
+        return tagIds.length;
+    }
+
+    /**
+     * @param index the index of the tag, between 0 and {@link #getTagCount()}
+     * @return the ID of the tag
+     */
+    public int getTagId(int index) {
+        return tagIds[index];
+    }
+
+    /**
+     * @param id the ID of the tag
+     * @return whether the layout contains a tag with the given ID
+     */
+    public boolean hasTag(int id) {
+        return id >= 0 && id < tagPoses.length && tagPoses[id] != null;
+    }
+
+    /**
+     * @param id the ID of the tag
+     * @return the pose of the tag, or null if the layout doesn't contain the tag
+     */
+    public Pose3d getTagPose(int id) {
+        return hasTag(id) ? tagPoses[id] : null;
+    }
+
+    /**
+     * @param id the ID of the tag
+     * @return the pose of the tag projected onto the floor, or null if the layout doesn't contain the tag
+     */
+    public Pose2d getTagPose2d(int id) {
+        return hasTag(id) ? tagPoses2d[id] : null;
+    }
+
+    /**
+     * Returns the inverse of the tag's pose, as a transform from the tag's pose to the field's origin.
+     *
+     * @param id the ID of the tag
+     * @return the transform from the tag to the field, or null if the layout doesn't contain the tag
+     */
+    public Transform3d getTagToFieldTransform(int id) {
+        return hasTag(id) ? tagToFieldTransforms[id] : null;
+    }
+}
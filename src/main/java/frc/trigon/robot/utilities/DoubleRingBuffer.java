@@ -0,0 +1,185 @@
+package frc.trigon.robot.utilities;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size ring buffer of primitive doubles, that keeps running statistics of the values it holds.
+ * Adding a value and querying the mean, variance, minimum and maximum are O(1), and no objects are created after construction.
+ * Once the buffer is full, every added value overrides the oldest one.
+ */
+public class DoubleRingBuffer {
+    private final double[] values;
+    private final double[] sortingBuffer;
+    private final long[] minimumCandidates, maximumCandidates;
+    private int minimumCandidatesHead = 0, minimumCandidatesSize = 0;
+    private int maximumCandidatesHead = 0, maximumCandidatesSize = 0;
+    private long addedValuesCount = 0;
+    private int size = 0;
+    private double sum = 0, sumOfSquares = 0;
+
+    /**
+     * Constructs a new ring buffer.
+     *
+     * @param capacity the maximum amount of values the buffer holds
+     */
+    public DoubleRingBuffer(int capacity) {
+        values = new double[capacity];
+        sortingBuffer = new double[capacity];
+        minimumCandidates = new long[capacity];
+        maximumCandidates = new long[capacity];
+    }
+
+    /**
+     * Adds a value to the buffer. If the buffer is full, the oldest value is removed.
+     *
+     * @param value the value to add
+     */
+    public void add(double value) {
+        if (isFull())
+            removeOldestValue();
+
+        values[getIndex(addedValuesCount)] = value;
+        sum += value;
+        sumOfSquares += value * value;
+        size++;
+        addMinimumCandidate(addedValuesCount, value);
+        addMaximumCandidate(addedValuesCount, value);
+        addedValuesCount++;
+    }
+
+    public void clear() {
+        size = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        minimumCandidatesSize = 0;
+        maximumCandidatesSize = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return values.length;
+    }
+
+    public boolean isFull() {
+        return size == values.length;
+    }
+
+    /**
+     * @return the newest value in the buffer, or 0 if the buffer is empty
+     */
+    public double getLatest() {
+        if (size == 0)
+            return 0;
+        return values[getIndex(addedValuesCount - 1)];
+    }
+
+    /**
+     * @return the mean of the values in the buffer, or 0 if the buffer is empty
+     */
+    public double getMean() {
+        if (size == 0)
+            return 0;
+        return sum / size;
+    }
+
+    /**
+     * @return the population variance of the values in the buffer, or 0 if the buffer is empty
+     */
+    public double getVariance() {
+        if (size == 0)
+            return 0;
+
+        final double mean = getMean();
+        return Math.max(0, sumOfSquares / size - mean * mean);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the smallest value in the buffer, or 0 if the buffer is empty
+     */
+    public double getMinimum() {
+        if (minimumCandidatesSize == 0)
+            return 0;
+        return values[getIndex(minimumCandidates[minimumCandidatesHead])];
+    }
+
+    /**
+     * @return the largest value in the buffer, or 0 if the buffer is empty
+     */
+    public double getMaximum() {
+        if (maximumCandidatesSize == 0)
+            return 0;
+        return values[getIndex(maximumCandidates[maximumCandidatesHead])];
+    }
+
+    /**
+     * Calculates a percentile of the values in the buffer, using the nearest rank method.
+     * This sorts a copy of the values into a preallocated buffer, so it's O(n log n) but doesn't create any objects.
+     *
+     * @param percentile the percentile, between 0 and 1
+     * @return the value at the percentile, or 0 if the buffer is empty
+     */
+    public double getPercentile(double percentile) {
+        if (size == 0)
+            return 0;
+
+        for (int i = 0; i < size; i++)
+            sortingBuffer[i] = values[getIndex(addedValuesCount - size + i)];
+        Arrays.sort(sortingBuffer, 0, size);
+
+        final int rank = (int) Math.ceil(percentile * size);
+        return sortingBuffer[Math.max(0, Math.min(size - 1, rank - 1))];
+    }
+
+    private void removeOldestValue() {
+        final long oldestSequence = addedValuesCount - size;
+        final double oldestValue = values[getIndex(oldestSequence)];
+
+        sum -= oldestValue;
+        sumOfSquares -= oldestValue * oldestValue;
+        size--;
+
+        if (minimumCandidatesSize > 0 && minimumCandidates[minimumCandidatesHead] == oldestSequence) {
+            minimumCandidatesHead = getIndex(minimumCandidatesHead + 1);
+            minimumCandidatesSize--;
+        }
+        if (maximumCandidatesSize > 0 && maximumCandidates[maximumCandidatesHead] == oldestSequence) {
+            maximumCandidatesHead = getIndex(maximumCandidatesHead + 1);
+            maximumCandidatesSize--;
+        }
+    }
+
+    /**
+     * Keeps the minimum candidates increasing, so the minimum is always at the head.
+     * Every candidate that's larger than the new value can never be the minimum again, so it's removed.
+     */
+    private void addMinimumCandidate(long sequence, double value) {
+        while (minimumCandidatesSize > 0 && values[getIndex(minimumCandidates[getIndex(minimumCandidatesHead + minimumCandidatesSize - 1)])] >= value)
+            minimumCandidatesSize--;
+
+        minimumCandidates[getIndex(minimumCandidatesHead + minimumCandidatesSize)] = sequence;
+        minimumCandidatesSize++;
+    }
+
+    /**
+     * Keeps the maximum candidates decreasing, so the maximum is always at the head.
+     * Every candidate that's smaller than the new value can never be the maximum again, so it's removed.
+     */
+    private void addMaximumCandidate(long sequence, double value) {
+        while (maximumCandidatesSize > 0 && values[getIndex(maximumCandidates[getIndex(maximumCandidatesHead + maximumCandidatesSize - 1)])] <= value)
+            maximumCandidatesSize--;
+
+        maximumCandidates[getIndex(maximumCandidatesHead + maximumCandidatesSize)] = sequence;
+        maximumCandidatesSize++;
+    }
+
+    private int getIndex(long sequence) {
+        return (int) (sequence % values.length);
+    }
+}
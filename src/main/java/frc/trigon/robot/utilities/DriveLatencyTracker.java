@@ -0,0 +1,68 @@
+package frc.trigon.robot.utilities;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * A class that measures the latency of the driver's inputs, from the moment the driver station data is refreshed until the swerve's motors are given their control requests.
+ * The input's timestamp is the loop's timestamp, which is taken when the driver station data is refreshed, and it's carried with the driver's inputs snapshot to the drive command.
+ * The drive command and the CAN write stamp the real time they ran at, which has the same time base, and once every loop the latencies between the stamps are added to histograms and logged.
+ */
+public class DriveLatencyTracker {
+    private static final double HISTOGRAM_BIN_WIDTH_SECONDS = 0.0005;
+    private static final int HISTOGRAM_BINS_COUNT = 60;
+    private static final LatencyHistogram
+            INPUT_TO_COMMAND_LATENCY = new LatencyHistogram(HISTOGRAM_BIN_WIDTH_SECONDS, HISTOGRAM_BINS_COUNT),
+            COMMAND_TO_CAN_WRITE_LATENCY = new LatencyHistogram(HISTOGRAM_BIN_WIDTH_SECONDS, HISTOGRAM_BINS_COUNT),
+            INPUT_TO_CAN_WRITE_LATENCY = new LatencyHistogram(HISTOGRAM_BIN_WIDTH_SECONDS, HISTOGRAM_BINS_COUNT);
+    private static long
+            INPUT_SAMPLE_TIMESTAMP_MICROSECONDS = -1,
+            DRIVE_COMMAND_TIMESTAMP_MICROSECONDS = -1,
+            CAN_WRITE_TIMESTAMP_MICROSECONDS = -1;
+
+    /**
+     * Stamps the time a drive command that's fed by the driver's inputs was given to the swerve.
+     * This should only be called from the execute of drive commands that use the driver's inputs, so loops where other commands drive the swerve aren't measured.
+     * Only the first drive command of the loop is measured.
+     *
+     * @param inputSampleTimestampMicroseconds the timestamp of the driver's inputs snapshot that the command uses, in microseconds
+     */
+    public static void markDriveCommanded(long inputSampleTimestampMicroseconds) {
+        if (DRIVE_COMMAND_TIMESTAMP_MICROSECONDS != -1)
+            return;
+
+        INPUT_SAMPLE_TIMESTAMP_MICROSECONDS = inputSampleTimestampMicroseconds;
+        DRIVE_COMMAND_TIMESTAMP_MICROSECONDS = Logger.getRealTimestamp();
+    }
+
+    /**
+     * Stamps the time a control request was written to a motor. The last write of the loop is measured, so all the modules are included.
+     */
+    public static void markCanWrite() {
+        if (DRIVE_COMMAND_TIMESTAMP_MICROSECONDS != -1)
+            CAN_WRITE_TIMESTAMP_MICROSECONDS = Logger.getRealTimestamp();
+    }
+
+    /**
+     * Adds the latencies of the current loop to the histograms, logs them, and clears the stamps for the next loop.
+     * This should be called once at the end of every robot loop, after the commands ran.
+     */
+    public static void update() {
+        if (INPUT_SAMPLE_TIMESTAMP_MICROSECONDS != -1 && DRIVE_COMMAND_TIMESTAMP_MICROSECONDS != -1 && CAN_WRITE_TIMESTAMP_MICROSECONDS != -1) {
+            INPUT_TO_COMMAND_LATENCY.add(microsecondsToSeconds(DRIVE_COMMAND_TIMESTAMP_MICROSECONDS - INPUT_SAMPLE_TIMESTAMP_MICROSECONDS));
+            COMMAND_TO_CAN_WRITE_LATENCY.add(microsecondsToSeconds(CAN_WRITE_TIMESTAMP_MICROSECONDS - DRIVE_COMMAND_TIMESTAMP_MICROSECONDS));
+            INPUT_TO_CAN_WRITE_LATENCY.add(microsecondsToSeconds(CAN_WRITE_TIMESTAMP_MICROSECONDS - INPUT_SAMPLE_TIMESTAMP_MICROSECONDS));
+        }
+
+        INPUT_TO_COMMAND_LATENCY.log("DriveLatency/InputToCommand/");
+        COMMAND_TO_CAN_WRITE_LATENCY.log("DriveLatency/CommandToCanWrite/");
+        INPUT_TO_CAN_WRITE_LATENCY.log("DriveLatency/InputToCanWrite/");
+
+        INPUT_SAMPLE_TIMESTAMP_MICROSECONDS = -1;
+        DRIVE_COMMAND_TIMESTAMP_MICROSECONDS = -1;
+        CAN_WRITE_TIMESTAMP_MICROSECONDS = -1;
+    }
+
+    private static double microsecondsToSeconds(long microseconds) {
+        return microseconds / 1e6;
+    }
+}
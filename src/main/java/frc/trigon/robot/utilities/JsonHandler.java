@@ -2,8 +2,10 @@ package frc.trigon.robot.utilities;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
 
 import java.io.IOException;
+import java.io.StringReader;
 
 public class JsonHandler {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
@@ -48,6 +50,42 @@ public class JsonHandler {
         return GSON.fromJson(jsonString, type);
     }
 
+    /**
+     * Creates a streaming reader for a JSON string.
+     * This should be used for JSON that's decoded every loop, where only a few fields are needed, instead of parsing the whole object.
+     *
+     * @param jsonString the json string to read
+     * @return the reader
+     */
+    public static JsonReader createStreamingReader(String jsonString) {
+        return new JsonReader(new StringReader(jsonString));
+    }
+
+    /**
+     * Reads a JSON array of numbers into a preallocated array.
+     * Values that don't fit in the target array are skipped, but are still counted in the returned length.
+     *
+     * @param reader the reader, positioned at the start of the array
+     * @param target the array to read the values into
+     * @return the length of the JSON array
+     * @throws IOException if the JSON is malformed
+     */
+    public static int readDoubleArray(JsonReader reader, double[] target) throws IOException {
+        int length = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (length < target.length)
+                target[length] = reader.nextDouble();
+            else
+                reader.skipValue();
+            length++;
+        }
+        reader.endArray();
+
+        return length;
+    }
+
     private static String parseObjectToJson(Object object) {
         return GSON.toJson(object);
     }
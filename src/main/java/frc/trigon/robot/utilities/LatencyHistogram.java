@@ -0,0 +1,53 @@
+package frc.trigon.robot.utilities;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * A histogram of latency measurements, with fixed width bins and an overflow bin for measurements that exceed the last bin.
+ * Statistics of the recent measurements are kept as well, so both the long term distribution and the current latency can be logged.
+ */
+public class LatencyHistogram {
+    private static final int SAVED_RECENT_MEASUREMENTS = 50;
+    private final double binWidthSeconds;
+    private final long[] binCounts;
+    private final DoubleRingBuffer recentMeasurementsSeconds = new DoubleRingBuffer(SAVED_RECENT_MEASUREMENTS);
+
+    /**
+     * Constructs a new LatencyHistogram.
+     *
+     * @param binWidthSeconds the width of every bin, in seconds
+     * @param binsCount       the amount of bins, not including the overflow bin
+     */
+    public LatencyHistogram(double binWidthSeconds, int binsCount) {
+        this.binWidthSeconds = binWidthSeconds;
+        binCounts = new long[binsCount + 1];
+    }
+
+    /**
+     * Adds a measurement to the histogram.
+     *
+     * @param latencySeconds the measured latency, in seconds
+     */
+    public void add(double latencySeconds) {
+        final int binIndex = (int) (Math.max(latencySeconds, 0) / binWidthSeconds);
+        binCounts[Math.min(binIndex, binCounts.length - 1)]++;
+        recentMeasurementsSeconds.add(latencySeconds);
+    }
+
+    /**
+     * Logs the histogram's bin counts, and the statistics of the recent measurements.
+     *
+     * @param loggingPath the path to log the histogram under
+     */
+    public void log(String loggingPath) {
+        if (recentMeasurementsSeconds.size() == 0)
+            return;
+
+        Logger.recordOutput(loggingPath + "Latest", recentMeasurementsSeconds.getLatest());
+        Logger.recordOutput(loggingPath + "Average", recentMeasurementsSeconds.getMean());
+        Logger.recordOutput(loggingPath + "Maximum", recentMeasurementsSeconds.getMaximum());
+        Logger.recordOutput(loggingPath + "P95", recentMeasurementsSeconds.getPercentile(0.95));
+        Logger.recordOutput(loggingPath + "BinWidthSeconds", binWidthSeconds);
+        Logger.recordOutput(loggingPath + "BinCounts", binCounts);
+    }
+}
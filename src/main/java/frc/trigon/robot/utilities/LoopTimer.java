@@ -0,0 +1,71 @@
+package frc.trigon.robot.utilities;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.trigon.robot.constants.RobotConstants;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * A class that measures the time between robot loops, and keeps statistics of the recent loop times.
+ * The loop times are published to the logger every loop, so skew or jitter can be correlated with slow loops.
+ */
+public class LoopTimer {
+    private static final int SAVED_LOOP_TIMES = 50;
+    private static final DoubleRingBuffer LOOP_TIMES_SECONDS = new DoubleRingBuffer(SAVED_LOOP_TIMES);
+    private static double LAST_LOOP_TIMESTAMP = -1;
+
+    /**
+     * Measures the time since the last call, and publishes the loop time statistics.
+     * This should be called once at the start of every robot loop.
+     */
+    public static void update() {
+        final double currentTimestamp = Timer.getFPGATimestamp();
+        if (LAST_LOOP_TIMESTAMP != -1)
+            LOOP_TIMES_SECONDS.add(currentTimestamp - LAST_LOOP_TIMESTAMP);
+        LAST_LOOP_TIMESTAMP = currentTimestamp;
+
+        logLoopTimes();
+    }
+
+    /**
+     * @return the average time of the recent loops, or the nominal periodic time if there aren't enough measurements yet
+     */
+    public static double getAverageLoopTimeSeconds() {
+        if (!LOOP_TIMES_SECONDS.isFull())
+            return RobotConstants.PERIODIC_TIME_SECONDS;
+        return LOOP_TIMES_SECONDS.getMean();
+    }
+
+    public static double getLatestLoopTimeSeconds() {
+        return LOOP_TIMES_SECONDS.getLatest();
+    }
+
+    public static double getLoopTimeStandardDeviationSeconds() {
+        return LOOP_TIMES_SECONDS.getStandardDeviation();
+    }
+
+    public static double getMinimumLoopTimeSeconds() {
+        return LOOP_TIMES_SECONDS.getMinimum();
+    }
+
+    public static double getMaximumLoopTimeSeconds() {
+        return LOOP_TIMES_SECONDS.getMaximum();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 1
+     * @return the loop time at the percentile of the recent loops
+     */
+    public static double getLoopTimePercentileSeconds(double percentile) {
+        return LOOP_TIMES_SECONDS.getPercentile(percentile);
+    }
+
+    private static void logLoopTimes() {
+        Logger.recordOutput("LoopTime/Latest", getLatestLoopTimeSeconds());
+        Logger.recordOutput("LoopTime/Average", getAverageLoopTimeSeconds());
+        Logger.recordOutput("LoopTime/StandardDeviation", getLoopTimeStandardDeviationSeconds());
+        Logger.recordOutput("LoopTime/Minimum", getMinimumLoopTimeSeconds());
+        Logger.recordOutput("LoopTime/Maximum", getMaximumLoopTimeSeconds());
+        Logger.recordOutput("LoopTime/P95", getLoopTimePercentileSeconds(0.95));
+        Logger.recordOutput("LoopTime/P99", getLoopTimePercentileSeconds(0.99));
+    }
+}